@@ -0,0 +1,78 @@
+#!/usr/bin/env bash
+#
+# Compares cold start time and resident memory of the JVM build and the native executable.
+#
+# Build the JVM jar first and keep a copy, since the native profile rewrites it with AOT classes:
+#   ./mvnw -DskipTests package && cp target/DiscountCalculator-0.0.1-SNAPSHOT.jar target/jvm.jar
+#   ./mvnw -Pnative -DskipTests native:compile
+#
+# Usage: benchmark/startup-benchmark.sh [runs]
+#
+# Startup is the wall-clock time until /actuator/health answers UP, RSS is read from /proc once it does.
+# Extra application arguments can be passed in APP_ARGS, e.g. to point at an external Mongo instead of
+# the embedded one (whose own startup is otherwise included in both measurements).
+#
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+JAR=${JAR:-target/jvm.jar}
+NATIVE=${NATIVE:-target/DiscountCalculator}
+APP_ARGS=${APP_ARGS:-}
+
+now_ms() {
+	date +%s%3N
+}
+
+# prints "<startup ms> <rss kB>" for one cold start of the given command
+measure() {
+	local start pid rss
+	start=$(now_ms)
+	"$@" --server.port="$PORT" $APP_ARGS > /dev/null 2>&1 &
+	pid=$!
+
+	until curl -sf "http://localhost:$PORT/actuator/health" | grep -q '"UP"'; do
+		if ! kill -0 "$pid" 2> /dev/null; then
+			echo "application exited before becoming healthy" >&2
+			exit 1
+		fi
+		sleep 0.02
+	done
+
+	echo -n "$(( $(now_ms) - start )) "
+	rss=$(awk '/VmRSS/ { print $2 }' "/proc/$pid/status")
+	echo "$rss"
+
+	kill "$pid"
+	wait "$pid" 2> /dev/null || true
+}
+
+# runs the command RUNS times and prints the median startup and RSS
+benchmark() {
+	local name=$1
+	shift
+	local startups=() rsss=()
+
+	for ((i = 1; i <= RUNS; i++)); do
+		read -r startup rss < <(measure "$@")
+		echo "$name run $i: ${startup} ms, $((rss / 1024)) MB RSS" >&2
+		startups+=("$startup")
+		rsss+=("$rss")
+	done
+
+	local median_startup median_rss
+	median_startup=$(printf '%s\n' "${startups[@]}" | sort -n | awk '{ a[NR] = $1 } END { print a[int((NR + 1) / 2)] }')
+	median_rss=$(printf '%s\n' "${rsss[@]}" | sort -n | awk '{ a[NR] = $1 } END { print a[int((NR + 1) / 2)] }')
+	printf '| %-6s | %10s | %8s |\n' "$name" "$median_startup" "$((median_rss / 1024))"
+}
+
+cd "$(dirname "$0")/.."
+
+echo "| build  | startup ms | RSS MB   |"
+echo "|--------|------------|----------|"
+if [ -f "$JAR" ]; then
+	benchmark jvm java -jar "$JAR"
+fi
+if [ -x "$NATIVE" ]; then
+	benchmark native "$NATIVE"
+fi
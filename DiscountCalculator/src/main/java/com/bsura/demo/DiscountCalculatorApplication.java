@@ -2,10 +2,12 @@ package com.bsura.demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
 @SpringBootApplication
 @EnableMongoRepositories
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class DiscountCalculatorApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,43 @@
+package com.bsura.demo;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import com.bsura.demo.data.model.AppliedDiscount;
+import com.bsura.demo.data.model.CartSample;
+import com.bsura.demo.data.model.CatalogVersion;
+import com.bsura.demo.data.model.Discount;
+import com.bsura.demo.rest.model.Cart;
+import com.bsura.demo.rest.model.DiscountDto;
+import com.bsura.demo.rest.model.DiscountTier;
+import com.bsura.demo.rest.model.SimulationRequest;
+import com.bsura.demo.rest.model.SimulationResult;
+import com.bsura.demo.trace.DecisionTrace;
+
+/**
+ * Reflection hints for the native image. Spring AOT derives most of them from the controllers and 
+ * repositories, but not for types only reached through Jackson (the Optional fields of DiscountDto, 
+ * the replay catalog file, actuator responses) or through MongoTemplate (CatalogVersion).
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+	@Override
+	public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+		
+		// Jackson binding, registered recursively for nested types such as CartItem, Item and the enums
+		new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), 
+				DiscountDto.class, DiscountTier.class, Cart.class, AppliedDiscount.class,
+				SimulationRequest.class, SimulationResult.class, DecisionTrace.class);
+		
+		// Mongo mapping instantiates documents and sets fields reflectively
+		for (Class<?> document : new Class<?>[] { Discount.class, CartSample.class, CatalogVersion.class }) {
+			hints.reflection().registerType(document, 
+					MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, 
+					MemberCategory.INVOKE_DECLARED_METHODS,
+					MemberCategory.DECLARED_FIELDS);
+		}
+	}
+
+}
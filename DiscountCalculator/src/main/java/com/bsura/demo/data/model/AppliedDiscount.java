@@ -5,6 +5,9 @@ package com.bsura.demo.data.model;
 
 import java.math.BigDecimal;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -19,5 +22,18 @@ public class AppliedDiscount {
 	
 	private String discountId;
 	private BigDecimal totalCostAfterDiscount;
+	
+	// version of the discounts catalog the cart was priced with
+	@JsonInclude(Include.NON_NULL)
+	private Long catalogVersion;
+	
+	// only set when the decision was traced, see DecisionTraceEndpoint
+	@JsonInclude(Include.NON_NULL)
+	private String traceId;
+	
+	public AppliedDiscount(String discountId, BigDecimal totalCostAfterDiscount) {
+		this.discountId = discountId;
+		this.totalCostAfterDiscount = totalCostAfterDiscount;
+	}
 
 }
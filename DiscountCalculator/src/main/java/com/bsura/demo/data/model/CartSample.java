@@ -0,0 +1,31 @@
+/**
+ * 
+ */
+package com.bsura.demo.data.model;
+
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.bsura.demo.rest.model.Cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Named set of carts kept for repeated what-if simulations.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "cartSamples")
+public class CartSample {
+
+	@Id
+	private String id;
+	
+	private List<Cart> carts;
+
+}
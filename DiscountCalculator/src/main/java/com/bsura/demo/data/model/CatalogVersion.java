@@ -0,0 +1,33 @@
+/**
+ * 
+ */
+package com.bsura.demo.data.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Monotonically increasing version of a catalog, bumped after every change to it.
+ * pending counts the changes that have started but not finished yet; a catalog read 
+ * is only consistent with version if pending was zero before and after it and version did not move.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "catalogVersions")
+public class CatalogVersion {
+
+	public static final String DISCOUNTS = "discounts";
+	
+	@Id
+	private String id;
+	
+	private long version;
+	
+	private long pending;
+
+}
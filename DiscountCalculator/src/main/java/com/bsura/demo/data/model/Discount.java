@@ -4,11 +4,14 @@
 package com.bsura.demo.data.model;
 
 import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import com.bsura.demo.rest.model.DiscountDto;
+import com.bsura.demo.rest.model.DiscountTier;
 import com.bsura.demo.rest.model.DiscountType;
 import com.bsura.demo.rest.model.ItemType;
 
@@ -33,6 +36,8 @@ public class Discount {
 	private BigDecimal itemCost;
 	private Integer quantity;
 	private String itemId;
+	// sorted by ascending threshold so that the applicable tier can be found by binary search
+	private List<DiscountTier> tiers;
 
 	
 	public Discount(DiscountDto discountDto) {
@@ -44,6 +49,11 @@ public class Discount {
 		this.itemCost = discountDto.getItemCost().orElse(null);
 		this.quantity = discountDto.getQuantity().orElse(null);
 		this.itemId = discountDto.getItemId().orElse(null);
+		this.tiers = discountDto.getTiers()
+				.map(discountTiers -> discountTiers.stream()
+						.sorted(Comparator.comparing(DiscountTier::getThreshold))
+						.toList())
+				.orElse(null);
 		
 	}
 	
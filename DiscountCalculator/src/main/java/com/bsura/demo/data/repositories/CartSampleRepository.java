@@ -0,0 +1,16 @@
+/**
+ * 
+ */
+package com.bsura.demo.data.repositories;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.bsura.demo.data.model.CartSample;
+
+/**
+ * 
+ */
+
+public interface CartSampleRepository extends MongoRepository<CartSample, String> {
+	
+}
@@ -13,4 +13,10 @@ import com.bsura.demo.data.model.Discount;
 
 public interface DiscountRepository extends MongoRepository<Discount, String> {
 	
+	/**
+	 * @param id
+	 * @return number of discounts deleted
+	 */
+	long removeById(String id);
+	
 }
@@ -0,0 +1,18 @@
+/**
+ * 
+ */
+package com.bsura.demo.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request requires a catalog version that has not been published yet, 
+ * or when no consistent catalog could be loaded because changes are in progress.
+ */
+@ResponseStatus(code = HttpStatus.PRECONDITION_FAILED)
+public class CatalogVersionNotAvailableException extends RuntimeException {
+
+	private static final long serialVersionUID = 6920587341259130512L;
+
+}
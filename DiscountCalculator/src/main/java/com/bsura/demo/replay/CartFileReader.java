@@ -0,0 +1,181 @@
+/**
+ * 
+ */
+package com.bsura.demo.replay;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import com.bsura.demo.rest.model.Cart;
+import com.bsura.demo.rest.model.CartItem;
+import com.bsura.demo.rest.model.Item;
+import com.bsura.demo.rest.model.ItemType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads carts one at a time from a file so that a replay never holds more than
+ * the current cart in memory.
+ *
+ * Files ending in .csv are read as rows of cartId,itemId,itemType,cost,quantity
+ * with a header line; consecutive rows sharing a cartId form one cart.
+ * Any other file is read as NDJSON, one Cart per line.
+ *
+ * Malformed lines either fail the read with an IllegalArgumentException or, when a handler is given,
+ * are reported to it with their line number and skipped; a malformed CSV row skips the whole cart.
+ */
+public class CartFileReader implements Iterator<Cart>, Closeable {
+
+	private final BufferedReader reader;
+	private final ObjectMapper objectMapper;
+	private final boolean csv;
+	// receives a description of every skipped cart, null to fail on the first one
+	private final Consumer<String> onMalformed;
+
+	private Cart next;
+	private String pendingCsvLine;
+	private long lineNumber;
+
+	public CartFileReader(final Path path, final ObjectMapper objectMapper) throws IOException {
+		this(path, objectMapper, null);
+	}
+
+	public CartFileReader(final Path path, final ObjectMapper objectMapper, final Consumer<String> onMalformed) throws IOException {
+		this.reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+		this.objectMapper = objectMapper;
+		this.csv = path.getFileName().toString().toLowerCase().endsWith(".csv");
+		this.onMalformed = onMalformed;
+
+		if (csv) {
+			// skip header
+			readLine();
+			pendingCsvLine = readLine();
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			next = csv ? readCsvCart() : readJsonCart();
+		}
+		return next != null;
+	}
+
+	@Override
+	public Cart next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Cart cart = next;
+		next = null;
+		return cart;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private Cart readJsonCart() {
+		String line;
+		while ((line = readLine()) != null) {
+			if (line.isBlank()) {
+				continue;
+			}
+			try {
+				return objectMapper.readValue(line, Cart.class);
+			} catch (JsonProcessingException e) {
+				malformed("Invalid cart on line " + lineNumber, e);
+			}
+		}
+		return null;
+	}
+
+	private Cart readCsvCart() {
+		while (pendingCsvLine != null) {
+			Cart cart = readCsvRows();
+			if (cart != null) {
+				return cart;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the rows of the next cartId.
+	 *
+	 * @return the cart, or null if its rows were malformed or only blank lines were left
+	 */
+	private Cart readCsvRows() {
+		String cartId = null;
+		List<CartItem> cartItems = new ArrayList<>();
+		String error = null;
+
+		while (pendingCsvLine != null) {
+			if (pendingCsvLine.isBlank()) {
+				pendingCsvLine = readLine();
+				continue;
+			}
+
+			String[] columns = pendingCsvLine.split(",", -1);
+			if (cartId != null && !cartId.equals(columns[0].trim())) {
+				break;
+			}
+			cartId = columns[0].trim();
+
+			// after the first error the remaining rows of the cart are only consumed
+			if (error == null && columns.length != 5) {
+				error = "Expected 5 columns on line " + lineNumber;
+				malformed(error, null);
+			} else if (error == null) {
+				try {
+					Item item = new Item(columns[1].trim(), ItemType.valueOf(columns[2].trim()), new BigDecimal(columns[3].trim()));
+					cartItems.add(new CartItem(Integer.valueOf(columns[4].trim()), item));
+				} catch (IllegalArgumentException e) {
+					error = "Invalid cart item on line " + lineNumber;
+					malformed(error, e);
+				}
+			}
+			pendingCsvLine = readLine();
+		}
+
+		if (error != null || cartItems.isEmpty()) {
+			return null;
+		}
+
+		Cart cart = new Cart();
+		cart.setCartItems(cartItems);
+		return cart;
+	}
+
+	private void malformed(final String message, final Exception cause) {
+		if (onMalformed == null) {
+			throw new IllegalArgumentException(message, cause);
+		}
+		onMalformed.accept(message);
+	}
+
+	private String readLine() {
+		try {
+			String line = reader.readLine();
+			if (line != null) {
+				lineNumber++;
+			}
+			return line;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
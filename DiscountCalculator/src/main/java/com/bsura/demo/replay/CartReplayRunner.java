@@ -0,0 +1,209 @@
+/**
+ * 
+ */
+package com.bsura.demo.replay;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.bsura.demo.data.model.AppliedDiscount;
+import com.bsura.demo.data.model.Discount;
+import com.bsura.demo.rest.model.Cart;
+import com.bsura.demo.rest.model.DiscountDto;
+import com.bsura.demo.service.CartSummary;
+import com.bsura.demo.service.DiscountEvaluator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Offline mode that prices historical carts against a catalog file instead of the live repository.
+ * Enabled by setting replay.carts, e.g.
+ *
+ * java -jar DiscountCalculator.jar --spring.main.web-application-type=none
+ *      --replay.carts=carts.ndjson --replay.catalog=catalog.json --replay.output=results.ndjson
+ *
+ * Carts are streamed from disk and handed to a fixed pool through a bounded queue; when the queue
+ * is full the reading thread evaluates the cart itself, so memory stays bounded regardless of file size.
+ * One result line is written per cart as soon as it is priced, so results are not in input order.
+ * A cart that fails to price or to write is logged and counted as failed, and a line that cannot be
+ * parsed is logged with its line number and counted as rejected; in both cases the replay carries on.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "replay.carts")
+public class CartReplayRunner implements ApplicationRunner {
+
+	@Autowired
+	private DiscountEvaluator evaluator;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${replay.carts}")
+	private Path cartsFile;
+
+	@Value("${replay.catalog}")
+	private Path catalogFile;
+
+	@Value("${replay.output:replay-results.ndjson}")
+	private Path outputFile;
+
+	@Value("${replay.summary:#{null}}")
+	private Path summaryFile;
+
+	@Value("${replay.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+	private int threads;
+
+	@Value("${replay.queue-capacity:1000}")
+	private int queueCapacity;
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		List<Discount> catalog = readCatalog(catalogFile);
+		log.info("Replaying carts from {} against {} discounts from {}", cartsFile, catalog.size(), catalogFile);
+
+		ReplaySummary summary = replay(catalog);
+
+		log.info("Replay finished: {} carts evaluated, {} rejected, {} failed, total savings {}",
+				summary.getEvaluatedCarts(), summary.getRejectedCarts(), summary.getFailedCarts(), summary.getTotalSavings());
+		if (summary.getFailedCarts() > 0) {
+			log.error("{} carts failed, the savings above do not include them", summary.getFailedCarts());
+		}
+		summary.getSavingsPerDiscount().forEach((discountId, savings) ->
+				log.info("  {}: {} carts, savings {}", discountId, summary.getCartsPerDiscount().get(discountId), savings));
+
+		if (summaryFile != null) {
+			objectMapper.writerWithDefaultPrettyPrinter().writeValue(summaryFile.toFile(), toReport(summary));
+		}
+	}
+
+	/**
+	 * Streams every cart in cartsFile through the evaluator and writes one NDJSON result line per cart.
+	 * 
+	 * @param catalog discounts to evaluate against
+	 * @return aggregated savings per discountId
+	 */
+	ReplaySummary replay(final List<Discount> catalog) throws IOException, InterruptedException {
+		ReplaySummary summary = new ReplaySummary();
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.CallerRunsPolicy());
+
+		try (CartFileReader carts = new CartFileReader(cartsFile, objectMapper, message -> {
+					log.warn("{}, skipping cart", message);
+					summary.recordRejected();
+				});
+				BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+
+			try {
+				long sequence = 0;
+				while (carts.hasNext()) {
+					final Cart cart = carts.next();
+					final long cartNumber = ++sequence;
+					executor.execute(() -> {
+						// exceptions escaping the task would kill the worker without a trace
+						try {
+							evaluate(cartNumber, cart, catalog, writer, summary);
+						} catch (RuntimeException e) {
+							log.warn("Failed to replay cart {}", cartNumber, e);
+							summary.recordFailed();
+						}
+					});
+				}
+			} finally {
+				// the workers must be done with the writer before it is closed, also when reading fails
+				executor.shutdown();
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return summary;
+	}
+
+	private void evaluate(final long cartNumber, final Cart cart, final List<Discount> catalog,
+			final Writer writer, final ReplaySummary summary) {
+
+		if (!cart.isValid()) {
+			summary.recordRejected();
+			return;
+		}
+
+		CartSummary cartSummary = evaluator.summarize(cart);
+		BigDecimal totalWithoutDiscount = cartSummary.getTotalWithoutDiscount();
+		AppliedDiscount appliedDiscount = evaluator.getBestDiscount(cartSummary, catalog);
+		BigDecimal savings = totalWithoutDiscount.subtract(appliedDiscount.getTotalCostAfterDiscount());
+
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("cart", cartNumber);
+		result.put("discountId", appliedDiscount.getDiscountId());
+		result.put("totalCostBeforeDiscount", totalWithoutDiscount);
+		result.put("totalCostAfterDiscount", appliedDiscount.getTotalCostAfterDiscount());
+
+		try {
+			String line = objectMapper.writeValueAsString(result);
+			synchronized (writer) {
+				writer.write(line);
+				writer.write('\n');
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		// only once the result is written, so that a failed cart is not also counted as evaluated
+		summary.record(appliedDiscount.getDiscountId(), savings);
+	}
+
+	/**
+	 * Reads a JSON array of discounts in the same format accepted by the create endpoint.
+	 * 
+	 * @param path catalog file
+	 * @return validated discounts
+	 */
+	List<Discount> readCatalog(final Path path) throws IOException {
+		List<DiscountDto> discountDtos = objectMapper.readValue(path.toFile(), new TypeReference<List<DiscountDto>>() {});
+
+		return discountDtos.stream()
+				.map(discountDto -> {
+					if (!discountDto.isValid()) {
+						throw new IllegalArgumentException("Invalid discount " + discountDto.getId() + " in " + path);
+					}
+					return new Discount(discountDto);
+				})
+				.toList();
+	}
+
+	private Map<String, Object> toReport(final ReplaySummary summary) {
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("evaluatedCarts", summary.getEvaluatedCarts());
+		report.put("rejectedCarts", summary.getRejectedCarts());
+		report.put("failedCarts", summary.getFailedCarts());
+		report.put("totalSavings", summary.getTotalSavings());
+		report.put("cartsPerDiscount", summary.getCartsPerDiscount());
+		report.put("savingsPerDiscount", summary.getSavingsPerDiscount());
+		return report;
+	}
+
+}
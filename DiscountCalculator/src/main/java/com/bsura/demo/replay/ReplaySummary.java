@@ -0,0 +1,65 @@
+/**
+ * 
+ */
+package com.bsura.demo.replay;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates replay outcomes per discountId. Safe to update from many worker threads;
+ * its size is bounded by the number of discounts in the catalog, not by the number of carts.
+ */
+public class ReplaySummary {
+
+	private final LongAdder evaluatedCarts = new LongAdder();
+	private final LongAdder rejectedCarts = new LongAdder();
+	private final LongAdder failedCarts = new LongAdder();
+	private final Map<String, LongAdder> cartsPerDiscount = new ConcurrentHashMap<>();
+	private final Map<String, BigDecimal> savingsPerDiscount = new ConcurrentHashMap<>();
+
+	public void record(final String discountId, final BigDecimal savings) {
+		evaluatedCarts.increment();
+		cartsPerDiscount.computeIfAbsent(discountId, id -> new LongAdder()).increment();
+		savingsPerDiscount.merge(discountId, savings, BigDecimal::add);
+	}
+
+	public void recordRejected() {
+		rejectedCarts.increment();
+	}
+
+	public void recordFailed() {
+		failedCarts.increment();
+	}
+
+	public long getEvaluatedCarts() {
+		return evaluatedCarts.sum();
+	}
+
+	public long getRejectedCarts() {
+		return rejectedCarts.sum();
+	}
+
+	public long getFailedCarts() {
+		return failedCarts.sum();
+	}
+
+	public Map<String, Long> getCartsPerDiscount() {
+		Map<String, Long> result = new TreeMap<>();
+		cartsPerDiscount.forEach((id, count) -> result.put(id, count.sum()));
+		return result;
+	}
+
+	public Map<String, BigDecimal> getSavingsPerDiscount() {
+		return new TreeMap<>(savingsPerDiscount);
+	}
+
+	public BigDecimal getTotalSavings() {
+		return savingsPerDiscount.values().stream()
+				.reduce(BigDecimal.ZERO, BigDecimal::add);
+	}
+
+}
@@ -0,0 +1,36 @@
+/**
+ * 
+ */
+package com.bsura.demo.rest.admission;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Registers one admission control interceptor per endpoint configured under admission.endpoints.
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+@ConditionalOnProperty(name = "admission.enabled", matchIfMissing = true)
+public class AdmissionControlConfiguration implements WebMvcConfigurer {
+
+	@Autowired
+	private AdmissionProperties properties;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		properties.getEndpoints().forEach((name, endpoint) -> 
+			registry.addInterceptor(new AdmissionControlInterceptor(name, endpoint, properties.getClientKeyHeader(), meterRegistry))
+				.addPathPatterns(endpoint.getPath()));
+	}
+
+}
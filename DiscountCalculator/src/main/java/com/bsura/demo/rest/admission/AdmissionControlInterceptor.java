@@ -0,0 +1,114 @@
+/**
+ * 
+ */
+package com.bsura.demo.rest.admission;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admission control for one endpoint. Runs before the request body is read, so rejected requests
+ * cost neither deserialization nor a Mongo round trip. Requests over the per-client limit get 429, 
+ * requests over the endpoint limit get 503, both with a Retry-After header.
+ */
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+
+	private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+	
+	private final AdmissionProperties.Endpoint endpoint;
+	private final String clientKeyHeader;
+	private final ConcurrencyLimiter limiter;
+	private final ClientConcurrencyLimiter clientLimiter;
+	private final String retryAfterSeconds;
+	
+	private final Counter admitted;
+	private final Counter rejectedForClient;
+	private final Counter rejectedForEndpoint;
+	
+	public AdmissionControlInterceptor(final String name, final AdmissionProperties.Endpoint endpoint, 
+			final String clientKeyHeader, final MeterRegistry meterRegistry) {
+		
+		this.endpoint = endpoint;
+		this.clientKeyHeader = clientKeyHeader;
+		this.limiter = new ConcurrencyLimiter(endpoint);
+		this.clientLimiter = endpoint.getMaxClientConcurrency() > 0 
+				? new ClientConcurrencyLimiter(endpoint.getMaxClientConcurrency()) 
+				: null;
+		this.retryAfterSeconds = String.valueOf(Math.max(1, endpoint.getRetryAfter().toSeconds()));
+		
+		Gauge.builder("admission.limit", limiter, ConcurrencyLimiter::getLimit)
+			.tag("endpoint", name).register(meterRegistry);
+		Gauge.builder("admission.inflight", limiter, ConcurrencyLimiter::getInFlight)
+			.tag("endpoint", name).register(meterRegistry);
+		if (clientLimiter != null) {
+			Gauge.builder("admission.clients", clientLimiter, ClientConcurrencyLimiter::getActiveClients)
+				.tag("endpoint", name).register(meterRegistry);
+		}
+		this.admitted = Counter.builder("admission.requests")
+				.tag("endpoint", name).tag("outcome", "admitted").register(meterRegistry);
+		this.rejectedForClient = Counter.builder("admission.requests")
+				.tag("endpoint", name).tag("outcome", "client_limited").register(meterRegistry);
+		this.rejectedForEndpoint = Counter.builder("admission.requests")
+				.tag("endpoint", name).tag("outcome", "endpoint_limited").register(meterRegistry);
+	}
+	
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		
+		if (endpoint.getMethod() != null && !endpoint.getMethod().equalsIgnoreCase(request.getMethod())) {
+			return true;
+		}
+		
+		String clientKey = clientLimiter == null ? null : request.getHeader(clientKeyHeader);
+		
+		if (clientKey != null && !clientLimiter.tryAcquire(clientKey)) {
+			rejectedForClient.increment();
+			return reject(response, HttpStatus.TOO_MANY_REQUESTS);
+		}
+		
+		if (!limiter.tryAcquire()) {
+			if (clientKey != null) {
+				clientLimiter.release(clientKey);
+			}
+			rejectedForEndpoint.increment();
+			return reject(response, HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		
+		admitted.increment();
+		request.setAttribute(PERMIT_ATTRIBUTE, new Permit(clientKey, System.nanoTime()));
+		return true;
+	}
+	
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		
+		Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+		if (permit == null) {
+			return;
+		}
+		request.removeAttribute(PERMIT_ATTRIBUTE);
+		
+		boolean success = ex == null && response.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value();
+		limiter.release(permit.startNanos, System.nanoTime(), success);
+		if (permit.clientKey != null) {
+			clientLimiter.release(permit.clientKey);
+		}
+	}
+	
+	private boolean reject(final HttpServletResponse response, final HttpStatus status) {
+		response.setStatus(status.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+		return false;
+	}
+	
+	private record Permit(String clientKey, long startNanos) {
+	}
+
+}
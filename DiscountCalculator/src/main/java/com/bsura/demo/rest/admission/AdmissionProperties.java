@@ -0,0 +1,68 @@
+/**
+ * 
+ */
+package com.bsura.demo.rest.admission;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Admission control settings, one entry per protected endpoint under admission.endpoints.
+ */
+@Data
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionProperties {
+
+	private boolean enabled = true;
+	
+	/**
+	 * Request header identifying the client for per-client limits. 
+	 * Requests without it are only subject to the endpoint limit.
+	 */
+	private String clientKeyHeader = "X-Client-Id";
+	
+	private Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+	
+	@Data
+	public static class Endpoint {
+		
+		/**
+		 * Path pattern of the endpoint, e.g. /discounts/
+		 */
+		private String path;
+		
+		/**
+		 * HTTP method of the endpoint. All methods are limited when not set.
+		 */
+		private String method;
+		
+		/**
+		 * Upper bound of concurrent requests, and the fixed limit when adaptive is false.
+		 */
+		private int maxConcurrency = 100;
+		
+		/**
+		 * When true the limit moves between minConcurrency and maxConcurrency: 
+		 * it grows by one while latency stays under latencyThreshold and shrinks by backoffRatio when it does not,
+		 * at most once per round trip.
+		 */
+		private boolean adaptive = false;
+		private int minConcurrency = 1;
+		private Duration latencyThreshold = Duration.ofMillis(250);
+		private double backoffRatio = 0.9;
+		
+		/**
+		 * Concurrent requests allowed per client key. Zero disables per-client limits.
+		 */
+		private int maxClientConcurrency = 0;
+		
+		private Duration retryAfter = Duration.ofSeconds(1);
+		
+	}
+
+}
@@ -0,0 +1,49 @@
+/**
+ * 
+ */
+package com.bsura.demo.rest.admission;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fixed concurrency limit per client key. Only clients with requests in flight are kept,
+ * so the map is bounded by the number of concurrent requests rather than by the number of clients.
+ */
+public class ClientConcurrencyLimiter {
+
+	private final Map<String, Integer> inFlight = new ConcurrentHashMap<>();
+	private final int limit;
+	
+	public ClientConcurrencyLimiter(final int limit) {
+		this.limit = limit;
+	}
+	
+	/**
+	 * @param clientKey
+	 * @return true if the request is admitted, in which case release must be called once it completes
+	 */
+	public boolean tryAcquire(final String clientKey) {
+		boolean[] admitted = new boolean[1];
+		
+		inFlight.compute(clientKey, (key, count) -> {
+			int current = count == null ? 0 : count;
+			if (current >= limit) {
+				return count;
+			}
+			admitted[0] = true;
+			return current + 1;
+		});
+		
+		return admitted[0];
+	}
+	
+	public void release(final String clientKey) {
+		inFlight.computeIfPresent(clientKey, (key, count) -> count <= 1 ? null : count - 1);
+	}
+	
+	public int getActiveClients() {
+		return inFlight.size();
+	}
+
+}
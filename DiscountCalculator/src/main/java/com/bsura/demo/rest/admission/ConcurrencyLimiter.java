@@ -0,0 +1,92 @@
+/**
+ * 
+ */
+package com.bsura.demo.rest.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free limit on the number of requests in flight. 
+ * A fixed limiter always allows maxLimit requests; an adaptive one applies AIMD to the limit:
+ * +1 for a fast response while at least half the limit is in use, times backoffRatio for a slow or failed one.
+ * Both happen at most once per round trip: only a request admitted after the previous change of the limit
+ * can trigger the next one. A single latency spike across all requests in flight backs off once, and a burst 
+ * of fast responses grows the limit by one rather than by the number of responses.
+ */
+public class ConcurrencyLimiter {
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger limit;
+	// System.nanoTime() of the last decrease
+	private final AtomicLong lastDecreaseNanos = new AtomicLong(System.nanoTime());
+	// System.nanoTime() of the last change of the limit in either direction
+	private final AtomicLong lastChangeNanos = new AtomicLong(System.nanoTime());
+	
+	private final boolean adaptive;
+	private final int minLimit;
+	private final int maxLimit;
+	private final long latencyThresholdNanos;
+	private final double backoffRatio;
+	
+	public ConcurrencyLimiter(final AdmissionProperties.Endpoint endpoint) {
+		this.adaptive = endpoint.isAdaptive();
+		this.minLimit = Math.max(1, Math.min(endpoint.getMinConcurrency(), endpoint.getMaxConcurrency()));
+		this.maxLimit = Math.max(1, endpoint.getMaxConcurrency());
+		this.latencyThresholdNanos = endpoint.getLatencyThreshold().toNanos();
+		this.backoffRatio = endpoint.getBackoffRatio();
+		this.limit = new AtomicInteger(maxLimit);
+	}
+	
+	/**
+	 * @return true if the request is admitted, in which case release must be called once it completes
+	 */
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= limit.get()) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Releases an admitted request and, for adaptive limiters, feeds its outcome into the limit.
+	 * 
+	 * @param startNanos System.nanoTime() when the request was admitted
+	 * @param endNanos System.nanoTime() when the request completed
+	 * @param success false if the request failed on the server side
+	 */
+	public void release(final long startNanos, final long endNanos, final boolean success) {
+		int current = inFlight.getAndDecrement();
+		
+		if (!adaptive) {
+			return;
+		}
+		
+		if (!success || endNanos - startNanos > latencyThresholdNanos) {
+			long lastDecrease = lastDecreaseNanos.get();
+			if (startNanos - lastDecrease >= 0 && lastDecreaseNanos.compareAndSet(lastDecrease, endNanos)) {
+				lastChangeNanos.accumulateAndGet(endNanos, (last, end) -> end - last > 0 ? end : last);
+				limit.updateAndGet(l -> Math.max(minLimit, (int) (l * backoffRatio)));
+			}
+		} else if (current * 2 >= limit.get()) {
+			long lastChange = lastChangeNanos.get();
+			if (startNanos - lastChange >= 0 && lastChangeNanos.compareAndSet(lastChange, endNanos)) {
+				limit.updateAndGet(l -> Math.min(maxLimit, l + 1));
+			}
+		}
+	}
+	
+	public int getLimit() {
+		return limit.get();
+	}
+	
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+}
@@ -3,17 +3,24 @@
  */
 package com.bsura.demo.rest.controller;
 
+import java.util.List;
+
 import org.springframework.lang.NonNull;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.bsura.demo.data.model.AppliedDiscount;
 import com.bsura.demo.rest.model.Cart;
 import com.bsura.demo.rest.model.DiscountDto;
+import com.bsura.demo.rest.model.SimulationRequest;
+import com.bsura.demo.rest.model.SimulationResult;
 
 import jakarta.validation.Valid;
 
@@ -32,7 +39,17 @@ public interface DiscountRestOperations {
 
 	// Can use GetMapping but request URL would look like
 	// http://localhost:8080/?cartItems[quantity]=1&cartItems[item][id]=123&cartItems[item][itemType]=CLOTHES&cartItems[item][cost]=39.99
+	// X-Pricing-Trace: true records the decision, see DecisionTraceEndpoint
+	// minCatalogVersion rejects the request with 412 if that catalog version is not available yet
 	@PostMapping("/")
-	public AppliedDiscount getBestDiscount(@RequestBody final Cart cart);
+	public AppliedDiscount getBestDiscount(@RequestBody final Cart cart, 
+			@RequestHeader(name = "X-Pricing-Trace", defaultValue = "false") final boolean trace,
+			@RequestParam(name = "minCatalogVersion", defaultValue = "0") final long minCatalogVersion);
+
+	@PostMapping("/simulate")
+	public SimulationResult simulate(@RequestBody @Valid final SimulationRequest request);
+
+	@PutMapping("/samples/{sampleId}")
+	public void saveCartSample(@PathVariable @NonNull final String sampleId, @RequestBody final List<Cart> carts);
 
 }
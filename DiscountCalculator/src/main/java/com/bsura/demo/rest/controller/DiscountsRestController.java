@@ -3,6 +3,8 @@
  */
 package com.bsura.demo.rest.controller;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.RestController;
@@ -11,7 +13,10 @@ import org.springframework.web.server.ResponseStatusException;
 import com.bsura.demo.data.model.AppliedDiscount;
 import com.bsura.demo.rest.model.Cart;
 import com.bsura.demo.rest.model.DiscountDto;
+import com.bsura.demo.rest.model.SimulationRequest;
+import com.bsura.demo.rest.model.SimulationResult;
 import com.bsura.demo.service.DiscountService;
+import com.bsura.demo.service.SimulationService;
 
 /**
  * 
@@ -22,6 +27,9 @@ public class DiscountsRestController implements DiscountRestOperations {
 	@Autowired
 	private DiscountService discountService;
 
+	@Autowired
+	private SimulationService simulationService;
+
 	@Override
 	public DiscountDto createDiscount(DiscountDto discount) {
 
@@ -40,12 +48,30 @@ public class DiscountsRestController implements DiscountRestOperations {
 	}
 
 	@Override
-	public AppliedDiscount getBestDiscount(Cart cart) {
+	public AppliedDiscount getBestDiscount(Cart cart, boolean trace, long minCatalogVersion) {
 		if (!cart.isValid()) {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
 		}
 
-		return discountService.getBestDiscount(cart);
+		return discountService.getBestDiscount(cart, trace, minCatalogVersion);
+	}
+
+	@Override
+	public SimulationResult simulate(SimulationRequest request) {
+		if (!request.isValid()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+		}
+
+		return simulationService.simulate(request);
+	}
+
+	@Override
+	public void saveCartSample(String sampleId, List<Cart> carts) {
+		if (carts == null || carts.isEmpty() || !carts.stream().allMatch(cart -> cart != null && cart.isValid())) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+		}
+
+		simulationService.saveCartSample(sampleId, carts);
 	}
 
 }
@@ -4,6 +4,7 @@
 package com.bsura.demo.rest.model;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -28,5 +29,24 @@ public class Cart {
 		return cartItems.stream()
 				.noneMatch(cartItem -> cartItem.isValid() == false);
 	}
+	
+	/**
+	 * Canonical form of a valid cart: carts that only differ in item order have the same fingerprint 
+	 * and always get the same response. Costs keep their scale, since it carries through to 
+	 * totalCostAfterDiscount, so 50.0 and 50.00 are different carts.
+	 * Item ids are length-prefixed so that no id can forge the separators.
+	 * 
+	 * @return fingerprint of the cart
+	 */
+	@JsonIgnore
+	public String getFingerprint() {
+		return cartItems.stream()
+				.map(cartItem -> cartItem.getItem().getId().length() + ":" + cartItem.getItem().getId() 
+						+ '|' + cartItem.getItem().getItemType() 
+						+ '|' + cartItem.getItem().getCost().toString() 
+						+ '|' + cartItem.getQuantity())
+				.sorted()
+				.collect(Collectors.joining(";"));
+	}
 
 }
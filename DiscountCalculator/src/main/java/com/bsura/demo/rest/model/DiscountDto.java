@@ -4,6 +4,7 @@
 package com.bsura.demo.rest.model;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import com.bsura.demo.data.model.Discount;
@@ -28,13 +29,19 @@ public class DiscountDto {
 
 	@NotNull 
 	private DiscountType discountType;
-	@NotNull 
+	// required for all but the tiered discount types, which take the percentage from the tier
 	private BigDecimal discountPercentage;
 	
-	private Optional<ItemType> itemType;
-	private Optional<BigDecimal> itemCost;
-	private Optional<Integer> quantity;
-	private Optional<String> itemId;
+	private Optional<ItemType> itemType = Optional.empty();
+	private Optional<BigDecimal> itemCost = Optional.empty();
+	private Optional<Integer> quantity = Optional.empty();
+	private Optional<String> itemId = Optional.empty();
+	private Optional<List<DiscountTier>> tiers = Optional.empty();
+
+	public DiscountDto(String id, DiscountType discountType, BigDecimal discountPercentage, Optional<ItemType> itemType,
+			Optional<BigDecimal> itemCost, Optional<Integer> quantity, Optional<String> itemId) {
+		this(id, discountType, discountPercentage, itemType, itemCost, quantity, itemId, Optional.empty());
+	}
 
 	public DiscountDto(Discount discount) {
 		this.id = discount.getId();
@@ -45,13 +52,29 @@ public class DiscountDto {
 		this.itemCost = Optional.ofNullable(discount.getItemCost());
 		this.quantity = Optional.ofNullable(discount.getQuantity());
 		this.itemId = Optional.ofNullable(discount.getItemId());
+		this.tiers = Optional.ofNullable(discount.getTiers());
 	}
 	
 	@JsonIgnore
 	public boolean isValid() {
 
+		// also called on requests that bypass bean validation, e.g. simulation additions and replay catalogs
+		if (discountType == null) {
+			return false;
+		}
+
+		switch (discountType) {
+			case TIERED_QUANTITY:
+				return itemId.isPresent() && areTiersValid();
+			case TIERED_SPEND:
+				return areTiersValid();
+			default:
+				break;
+		}
+
 		// discountPercentage can be between zero and 100 both inclusive
-		if (discountPercentage.compareTo(BigDecimal.ZERO) < 0
+		if (discountPercentage == null
+				|| discountPercentage.compareTo(BigDecimal.ZERO) < 0
 				|| discountPercentage.compareTo(BigDecimal.valueOf(100)) > 0) {
 			return false;
 		}
@@ -64,8 +87,24 @@ public class DiscountDto {
 				return quantity.isPresent() && quantity.get() >= 0 && itemId.isPresent();
 			case ITEM_COST:
 				return itemCost.isPresent() && itemCost.get().compareTo(BigDecimal.ZERO) >= 0;
+			default:
+				return false;
+		}
+	}
 
+	/**
+	 * Tiers must be present, valid and have distinct thresholds.
+	 * 
+	 * @return true if the tiers are valid
+	 */
+	private boolean areTiersValid() {
+		if (tiers.isEmpty() || tiers.get().isEmpty() || !tiers.get().stream().allMatch(tier -> tier != null && tier.isValid())) {
+			return false;
 		}
-		return false;
+
+		return tiers.get().stream()
+				.map(tier -> tier.getThreshold().stripTrailingZeros())
+				.distinct()
+				.count() == tiers.get().size();
 	}
 }
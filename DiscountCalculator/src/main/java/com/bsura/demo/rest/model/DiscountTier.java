@@ -0,0 +1,38 @@
+/**
+ * 
+ */
+package com.bsura.demo.rest.model;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One step of a tiered discount: discountPercentage applies once the cart reaches threshold, 
+ * which is a quantity for TIERED_QUANTITY and a cart total for TIERED_SPEND.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DiscountTier {
+
+	@NotNull
+	private BigDecimal threshold;
+	@NotNull
+	private BigDecimal discountPercentage;
+	
+	@JsonIgnore
+	public boolean isValid() {
+		return threshold != null 
+				&& threshold.compareTo(BigDecimal.ZERO) >= 0
+				&& discountPercentage != null
+				&& discountPercentage.compareTo(BigDecimal.ZERO) >= 0
+				&& discountPercentage.compareTo(BigDecimal.valueOf(100)) <= 0;
+	}
+
+}
@@ -10,5 +10,7 @@ public enum DiscountType {
 
 	ITEM_TYPE,
 	ITEM_COST,
-	QUANTITY
+	QUANTITY,
+	TIERED_QUANTITY,
+	TIERED_SPEND
 }
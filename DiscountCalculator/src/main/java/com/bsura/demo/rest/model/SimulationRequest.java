@@ -0,0 +1,44 @@
+/**
+ * 
+ */
+package com.bsura.demo.rest.model;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Candidate catalog described as changes to the live catalog, evaluated on either
+ * the given carts or a stored cart sample.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulationRequest {
+
+	private Optional<List<Cart>> carts = Optional.empty();
+	private Optional<String> sampleId = Optional.empty();
+	
+	private List<@Valid DiscountDto> additions = List.of();
+	private List<String> removals = List.of();
+	
+	@JsonIgnore
+	public boolean isValid() {
+		if (carts.isPresent() == sampleId.isPresent()) {
+			return false;
+		}
+		if (additions == null || removals == null) {
+			return false;
+		}
+		
+		return carts.map(cartList -> !cartList.isEmpty() && cartList.stream().allMatch(cart -> cart != null && cart.isValid())).orElse(true)
+				&& additions.stream().allMatch(addition -> addition != null && addition.isValid());
+	}
+
+}
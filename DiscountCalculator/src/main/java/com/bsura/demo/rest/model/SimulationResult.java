@@ -0,0 +1,31 @@
+/**
+ * 
+ */
+package com.bsura.demo.rest.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a what-if simulation. Savings deltas are candidate savings minus live savings,
+ * so a positive value means customers save more with the candidate catalog.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SimulationResult {
+
+	private long liveCatalogVersion;
+	private int cartCount;
+	private BigDecimal liveTotalCostAfterDiscount;
+	private BigDecimal candidateTotalCostAfterDiscount;
+	private BigDecimal savingsDelta;
+	private Map<String, BigDecimal> savingsDeltaPerDiscount;
+	private List<WinnerChange> winnerChanges;
+
+}
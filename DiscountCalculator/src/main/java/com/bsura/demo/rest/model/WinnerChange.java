@@ -0,0 +1,26 @@
+/**
+ * 
+ */
+package com.bsura.demo.rest.model;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A cart whose best discount differs between the live and the candidate catalog.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WinnerChange {
+
+	private int cartIndex;
+	private String liveDiscountId;
+	private BigDecimal liveTotalCostAfterDiscount;
+	private String candidateDiscountId;
+	private BigDecimal candidateTotalCostAfterDiscount;
+
+}
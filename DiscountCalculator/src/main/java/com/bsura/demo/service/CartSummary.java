@@ -0,0 +1,37 @@
+/**
+ * 
+ */
+package com.bsura.demo.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.bsura.demo.rest.model.CartItem;
+
+import lombok.Getter;
+
+/**
+ * Per-cart data computed once and reused for every discount evaluated against the cart:
+ * the total of each cart item and the cart total without discount.
+ */
+@Getter
+public class CartSummary {
+
+	private final List<CartItem> cartItems;
+	private final BigDecimal[] cartItemTotals;
+	private final BigDecimal totalWithoutDiscount;
+
+	public CartSummary(final List<CartItem> cartItems) {
+		this.cartItems = cartItems;
+		this.cartItemTotals = new BigDecimal[cartItems.size()];
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (int i = 0; i < cartItemTotals.length; i++) {
+			CartItem cartItem = cartItems.get(i);
+			cartItemTotals[i] = cartItem.getItem().getCost().multiply(BigDecimal.valueOf(cartItem.getQuantity()));
+			total = total.add(cartItemTotals[i]);
+		}
+		this.totalWithoutDiscount = total;
+	}
+
+}
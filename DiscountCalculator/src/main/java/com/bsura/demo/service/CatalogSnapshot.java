@@ -0,0 +1,25 @@
+/**
+ * 
+ */
+package com.bsura.demo.service;
+
+import java.util.List;
+
+import com.bsura.demo.data.model.Discount;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable view of the discounts catalog at a given version.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogSnapshot {
+
+	private final long version;
+	private final List<Discount> discounts;
+	// System.nanoTime() of the last time the version was confirmed against Mongo
+	private final long checkedAtNanos;
+
+}
@@ -0,0 +1,220 @@
+/**
+ * 
+ */
+package com.bsura.demo.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.bsura.demo.data.model.CatalogVersion;
+import com.bsura.demo.data.model.Discount;
+import com.bsura.demo.data.repositories.DiscountRepository;
+import com.bsura.demo.exception.CatalogVersionNotAvailableException;
+
+/**
+ * Versioned, locally cached copy of the discounts catalog.
+ * 
+ * The version lives in Mongo next to a count of pending changes. Every change is wrapped in 
+ * beginChange and endChange, which work like the two halves of a seqlock: beginChange raises pending 
+ * before the write, endChange lowers it and bumps the version after the write. A node only labels 
+ * discounts with a version if pending was zero and the version unchanged both before and after 
+ * loading them, so every node serving a version serves the same discounts. While a change is in 
+ * flight the node keeps serving its previous snapshot. A node that dies between the two calls leaves 
+ * pending raised, which freezes every node on its current snapshot until the version document is fixed.
+ * 
+ * A node re-checks the version at most once per refresh interval. It checks sooner right after its own 
+ * changes, and when a caller needs a newer version than it holds, but then at most once per version check 
+ * interval; callers asking for a version that is not published yet get a 412 without waiting for Mongo.
+ * 
+ * Mongo only ever hands out increasing versions, so a version lower than one already seen means the 
+ * version document was recreated, e.g. after the database was dropped. The node then forgets what it 
+ * knew and reloads, rather than serving a cached catalog whose version number may be reached again.
+ */
+@Component
+public class DiscountCatalog {
+
+	private static final int MAX_LOAD_ATTEMPTS = 5;
+	private static final long LOAD_RETRY_MILLIS = 10;
+	
+	@Autowired
+	private DiscountRepository repository;
+	
+	@Autowired
+	private MongoTemplate mongoTemplate;
+	
+	@Value("${catalog.refresh-interval:1s}")
+	private Duration refreshInterval;
+	
+	@Value("${catalog.version-check-interval:100ms}")
+	private Duration versionCheckInterval;
+	
+	private volatile CatalogSnapshot snapshot;
+	
+	// highest version this node knows to exist, raised by its own changes
+	private final AtomicLong knownVersion = new AtomicLong();
+	
+	// System.nanoTime() from which a caller needing a newer version may check Mongo again
+	private final AtomicLong nextVersionCheckNanos = new AtomicLong(System.nanoTime());
+	
+	/**
+	 * Announces a change to the catalog. Must be called before the change is written 
+	 * and followed by endChange once it has been written or has failed.
+	 */
+	public void beginChange() {
+		modifyVersion(new Update().inc("pending", 1));
+	}
+	
+	/**
+	 * Completes a change announced by beginChange.
+	 * 
+	 * @param changed false if nothing was written, in which case the version is left alone
+	 * @return the catalog version after the change
+	 */
+	public long endChange(final boolean changed) {
+		Update update = new Update().inc("pending", -1);
+		if (changed) {
+			update.inc("version", 1);
+		}
+		long version = modifyVersion(update).getVersion();
+		
+		if (changed) {
+			// let the next read on this node see the change without waiting for the version check interval
+			nextVersionCheckNanos.set(System.nanoTime());
+			long previous = knownVersion.getAndAccumulate(version, Math::max);
+			if (version <= previous) {
+				// either the version document was recreated or a concurrent change on this node finished first;
+				// the latter only costs a reload
+				invalidate();
+			}
+		}
+		return version;
+	}
+	
+	/**
+	 * Returns the cached catalog, refreshing it first if the refresh interval has passed 
+	 * or if it is older than minVersion. If the catalog is still older than minVersion after the refresh,
+	 * then it throws CatalogVersionNotAvailable runtime exception, as it does when no consistent 
+	 * catalog could be loaded yet.
+	 * 
+	 * @param minVersion lowest acceptable version, zero for any
+	 * @return snapshot of the catalog
+	 */
+	public CatalogSnapshot getSnapshot(final long minVersion) {
+		
+		long requiredVersion = Math.max(minVersion, knownVersion.get());
+		CatalogSnapshot current = snapshot;
+		long now = System.nanoTime();
+		
+		if (current == null || now - current.getCheckedAtNanos() > refreshInterval.toNanos()
+				|| (current.getVersion() < requiredVersion && tryStartVersionCheck(now))) {
+			current = refresh(requiredVersion);
+		}
+		
+		if (current == null || current.getVersion() < minVersion) {
+			throw new CatalogVersionNotAvailableException();
+		}
+		return current;
+	}
+	
+	private synchronized CatalogSnapshot refresh(final long requiredVersion) {
+		
+		// another thread may have refreshed while this one waited
+		CatalogSnapshot current = snapshot;
+		if (current != null && current.getVersion() >= requiredVersion 
+				&& System.nanoTime() - current.getCheckedAtNanos() <= refreshInterval.toNanos()) {
+			return current;
+		}
+		
+		/*
+		 * For simplicity we are loading all available discounts. If the number of discounts is too great,
+		 * we should query for the results that match ANY of the below conditions per cart
+		 * 
+		 * 1. discountType == TOTAL_COST && totalCost < maxItemCost
+		 * 2. discountType == ITEM_TYPE && itemType IN getItemTypesSet(cart)
+		 * 3. discountType == QUANTITY && itemId in getAllItemIds(cart) && quantity <= getMaxItemQuantity(cart)
+		 */
+		for (int attempt = 1; attempt <= MAX_LOAD_ATTEMPTS; attempt++) {
+			if (attempt > 1) {
+				pause();
+			}
+			
+			// read before the version, so that a concurrent change cannot pass for a reset
+			long known = knownVersion.get();
+			CatalogVersion before = readVersion();
+			if (before.getVersion() < known || (current != null && before.getVersion() < current.getVersion())) {
+				// the version went backwards: nothing cached can be trusted, including the known version
+				knownVersion.compareAndSet(known, before.getVersion());
+				current = null;
+			}
+			if (before.getPending() > 0) {
+				continue;
+			}
+			if (current != null && current.getVersion() == before.getVersion()) {
+				snapshot = new CatalogSnapshot(current.getVersion(), current.getDiscounts(), System.nanoTime());
+				return snapshot;
+			}
+			
+			List<Discount> discounts = List.copyOf(repository.findAll());
+			CatalogVersion after = readVersion();
+			
+			if (after.getPending() <= 0 && after.getVersion() == before.getVersion()) {
+				snapshot = new CatalogSnapshot(before.getVersion(), discounts, System.nanoTime());
+				return snapshot;
+			}
+		}
+		
+		// changes kept racing with the load: keep serving the previous snapshot, which is still 
+		// consistent with its own version, and try again after the refresh interval
+		if (current != null) {
+			snapshot = new CatalogSnapshot(current.getVersion(), current.getDiscounts(), System.nanoTime());
+		}
+		return current;
+	}
+	
+	/**
+	 * Lets one caller per version check interval through to Mongo, so that requests for a version 
+	 * that is not published yet do not queue every pricing thread behind the refresh.
+	 */
+	private boolean tryStartVersionCheck(final long now) {
+		long next = nextVersionCheckNanos.get();
+		return now - next >= 0 && nextVersionCheckNanos.compareAndSet(next, now + versionCheckInterval.toNanos());
+	}
+	
+	private synchronized void invalidate() {
+		snapshot = null;
+	}
+	
+	private CatalogVersion modifyVersion(final Update update) {
+		return mongoTemplate.findAndModify(
+				Query.query(Criteria.where("_id").is(CatalogVersion.DISCOUNTS)), 
+				update, 
+				FindAndModifyOptions.options().returnNew(true).upsert(true), 
+				CatalogVersion.class);
+	}
+	
+	private CatalogVersion readVersion() {
+		return Optional.ofNullable(mongoTemplate.findById(CatalogVersion.DISCOUNTS, CatalogVersion.class))
+				.orElseGet(() -> new CatalogVersion(CatalogVersion.DISCOUNTS, 0, 0));
+	}
+	
+	private static void pause() {
+		try {
+			Thread.sleep(LOAD_RETRY_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CatalogVersionNotAvailableException();
+		}
+	}
+
+}
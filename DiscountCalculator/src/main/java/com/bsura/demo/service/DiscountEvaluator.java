@@ -0,0 +1,275 @@
+/**
+ * 
+ */
+package com.bsura.demo.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.bsura.demo.data.model.AppliedDiscount;
+import com.bsura.demo.data.model.Discount;
+import com.bsura.demo.rest.model.Cart;
+import com.bsura.demo.rest.model.CartItem;
+import com.bsura.demo.rest.model.DiscountTier;
+import com.bsura.demo.trace.DecisionTraceRecorder;
+
+/**
+ * Stateless pricing logic shared by the REST service and offline replays.
+ * The catalog is passed in, so this class never talks to the repository.
+ */
+@Component
+public class DiscountEvaluator {
+
+	public static final String NO_DISCOUNT_ID = "NoDiscount";
+
+	/**
+	 * Applies the discount with greatest dollar value from the given catalog to the cart.
+	 * If no discount applies, then the method will return a response with discountId NO_DISCOUNT_ID
+	 * and the cart total without discount.
+	 * 
+	 * @param cart
+	 * @param catalog discounts to choose from
+	 * @return discountId and cartTotal after applying discount.
+	 */
+	public AppliedDiscount getBestDiscount(@NonNull final Cart cart, @NonNull final List<Discount> catalog) {
+		return getBestDiscount(summarize(cart), catalog);
+	}
+
+	/**
+	 * Same as {@link #getBestDiscount(Cart, List)} for a cart that has already been summarized.
+	 * 
+	 * @param cartSummary
+	 * @param catalog discounts to choose from
+	 * @return discountId and cartTotal after applying discount.
+	 */
+	public AppliedDiscount getBestDiscount(@NonNull final CartSummary cartSummary, @NonNull final List<Discount> catalog) {
+		return getBestDiscount(cartSummary, catalog, null);
+	}
+
+	/**
+	 * Same as {@link #getBestDiscount(CartSummary, List)}, reporting every candidate to the recorder if one is given.
+	 * 
+	 * @param cartSummary
+	 * @param catalog discounts to choose from
+	 * @param recorder receives each discount and the cart total after applying it, may be null
+	 * @return discountId and cartTotal after applying discount.
+	 */
+	public AppliedDiscount getBestDiscount(@NonNull final CartSummary cartSummary, @NonNull final List<Discount> catalog,
+			@Nullable final DecisionTraceRecorder recorder) {
+
+		BigDecimal totalWithoutDiscount = cartSummary.getTotalWithoutDiscount();
+
+		String bestDiscountId = NO_DISCOUNT_ID;
+		BigDecimal bestTotal = totalWithoutDiscount;
+
+		for (Discount discount : catalog) {
+			BigDecimal total = getCartTotal(cartSummary, discount);
+			if (recorder != null) {
+				recorder.candidate(discount, total);
+			}
+			if (total.compareTo(bestTotal) < 0) {
+				bestDiscountId = discount.getId();
+				bestTotal = total;
+			}
+		}
+
+		return new AppliedDiscount(bestDiscountId, bestTotal);
+	}
+
+	/**
+	 * Pre-aggregates the cart so that it can be evaluated against many discounts.
+	 * 
+	 * @param cart
+	 * @return summary of the cart
+	 */
+	public CartSummary summarize(@NonNull final Cart cart) {
+		return new CartSummary(cart.getCartItems());
+	}
+
+	/**
+	 * Calculates cartTotal without any discount.
+	 * 
+	 * @param cartItems
+	 * @return
+	 */
+	public BigDecimal getTotalForCartItems(List<CartItem> cartItems) {
+		return new CartSummary(cartItems).getTotalWithoutDiscount();
+	}
+
+	/**
+	 * Calculates total dollar value of the cart after applying the given discount
+	 * 
+	 * @param cartSummary
+	 * @param discount
+	 * @return total value of cart after discount is applied
+	 */
+	public BigDecimal getCartTotal(final CartSummary cartSummary, final Discount discount) {
+
+		switch (discount.getDiscountType()) {
+			case ITEM_COST:
+				return getTotalForItemCostDiscount(cartSummary, discount);
+			case ITEM_TYPE:
+				return getTotalForItemTypeDiscount(cartSummary, discount);
+			case QUANTITY:
+				return getTotalForQuantityDiscount(cartSummary, discount);
+			case TIERED_QUANTITY:
+				return getTotalForTieredQuantityDiscount(cartSummary, discount);
+			case TIERED_SPEND:
+				return getTotalForTieredSpendDiscount(cartSummary, discount);
+			default:
+				throw new RuntimeException("Unknown discountType " + discount.getDiscountType());
+
+		}
+	}
+
+	/**
+	 * Applies the discountPercentage to all items if cost of item is strictly greater than the
+	 * itemCost configured for the discount.
+	 * 
+	 * @param cartSummary
+	 * @param discount
+	 * @return cartTotal after applying discount
+	 */
+	private BigDecimal getTotalForItemCostDiscount(final CartSummary cartSummary, final Discount discount) {
+
+		return getTotal(cartSummary, discount.getDiscountPercentage(),
+				cartItem -> cartItem.getItem().getCost().compareTo(discount.getItemCost()) > 0);
+	}
+
+	/**
+	 * Applies percentage discount to all cartItems that match the itemType and no discount to others.
+	 * 
+	 * @param cartSummary
+	 * @param discount
+	 * @return cartTotal after applying discount
+	 */
+	private BigDecimal getTotalForItemTypeDiscount(final CartSummary cartSummary, final Discount discount) {
+
+		return getTotal(cartSummary, discount.getDiscountPercentage(),
+				cartItem -> discount.getItemType() == cartItem.getItem().getItemType());
+	}
+
+	/**
+	 * Applies percentage discount to all cartItems with matching itemId and quantity greater than or equal to quantity.
+	 * 
+	 * @param cartSummary
+	 * @param discount
+	 * @return cartTotal after applying discount
+	 */
+	private BigDecimal getTotalForQuantityDiscount(final CartSummary cartSummary, final Discount discount) {
+
+		return getTotal(cartSummary, discount.getDiscountPercentage(),
+				cartItem -> cartItem.getItem().getId().equals(discount.getItemId()) && cartItem.getQuantity() >= discount.getQuantity());
+	}
+
+	/**
+	 * Applies the percentage of the highest tier reached by the total quantity of the discount's itemId
+	 * to all cartItems with that itemId.
+	 * 
+	 * @param cartSummary
+	 * @param discount
+	 * @return cartTotal after applying discount
+	 */
+	private BigDecimal getTotalForTieredQuantityDiscount(final CartSummary cartSummary, final Discount discount) {
+
+		long quantity = 0;
+		for (CartItem cartItem : cartSummary.getCartItems()) {
+			if (cartItem.getItem().getId().equals(discount.getItemId())) {
+				quantity += cartItem.getQuantity();
+			}
+		}
+
+		DiscountTier tier = findTier(discount.getTiers(), BigDecimal.valueOf(quantity));
+		if (tier == null) {
+			return cartSummary.getTotalWithoutDiscount();
+		}
+
+		return getTotal(cartSummary, tier.getDiscountPercentage(),
+				cartItem -> cartItem.getItem().getId().equals(discount.getItemId()));
+	}
+
+	/**
+	 * Applies the percentage of the highest tier reached by the cart total to all cartItems.
+	 * 
+	 * @param cartSummary
+	 * @param discount
+	 * @return cartTotal after applying discount
+	 */
+	private BigDecimal getTotalForTieredSpendDiscount(final CartSummary cartSummary, final Discount discount) {
+
+		DiscountTier tier = findTier(discount.getTiers(), cartSummary.getTotalWithoutDiscount());
+		if (tier == null) {
+			return cartSummary.getTotalWithoutDiscount();
+		}
+
+		return applyDiscount(cartSummary.getTotalWithoutDiscount(), tier.getDiscountPercentage());
+	}
+
+	/**
+	 * Binary search for the tier with the greatest threshold less than or equal to value.
+	 * 
+	 * @param tiers sorted by ascending threshold
+	 * @param value cart quantity or total
+	 * @return applicable tier, or null if value is below every threshold
+	 */
+	static DiscountTier findTier(final List<DiscountTier> tiers, final BigDecimal value) {
+
+		int low = 0;
+		int high = tiers.size() - 1;
+		DiscountTier found = null;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			DiscountTier tier = tiers.get(mid);
+			if (tier.getThreshold().compareTo(value) <= 0) {
+				found = tier;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Applies percentage discount to the cartItems accepted by the filter and no discount to others.
+	 * 
+	 * @param cartSummary
+	 * @param discountPercentage
+	 * @param discounted filter selecting the cartItems the discount applies to
+	 * @return cartTotal after applying discount
+	 */
+	private BigDecimal getTotal(final CartSummary cartSummary, final BigDecimal discountPercentage,
+			final Predicate<CartItem> discounted) {
+
+		List<CartItem> cartItems = cartSummary.getCartItems();
+		BigDecimal[] cartItemTotals = cartSummary.getCartItemTotals();
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (int i = 0; i < cartItemTotals.length; i++) {
+			total = total.add(discounted.test(cartItems.get(i))
+					? applyDiscount(cartItemTotals[i], discountPercentage)
+					: cartItemTotals[i]);
+		}
+		return total;
+	}
+
+	/**
+	 * Applies percentage discount to the cartItem total.
+	 * 
+	 * @param cartItemTotal
+	 * @param discountPercentage
+	 * @return cartItem total after apply discount
+	 */
+	private BigDecimal applyDiscount(final BigDecimal cartItemTotal, final BigDecimal discountPercentage) {
+
+		return cartItemTotal
+				.multiply(BigDecimal.valueOf(100).subtract(discountPercentage).divide(BigDecimal.valueOf(100)));
+	}
+
+}
@@ -3,12 +3,11 @@
  */
 package com.bsura.demo.service;
 
-import java.math.BigDecimal;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 
@@ -17,8 +16,12 @@ import com.bsura.demo.data.model.Discount;
 import com.bsura.demo.data.repositories.DiscountRepository;
 import com.bsura.demo.exception.ResourceAlreadyExistsException;
 import com.bsura.demo.rest.model.Cart;
-import com.bsura.demo.rest.model.CartItem;
 import com.bsura.demo.rest.model.DiscountDto;
+import com.bsura.demo.trace.DecisionTraceBuffer;
+import com.bsura.demo.trace.DecisionTraceRecorder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * 
@@ -26,11 +29,31 @@ import com.bsura.demo.rest.model.DiscountDto;
 @Service
 public class DiscountService {
 
-	private static final String NO_DISCOUNT_ID = "NoDiscount";
-	
 	@Autowired
 	private DiscountRepository repository;
 	
+	@Autowired
+	private DiscountEvaluator evaluator;
+	
+	@Autowired
+	private DiscountCatalog catalog;
+	
+	private final SingleFlight<String, AppliedDiscount> bestDiscountFlights;
+	
+	@Autowired
+	private DecisionTraceBuffer traceBuffer;
+	
+	// fraction of best discount requests traced without being asked to
+	@Value("${pricing.trace.sample-rate:0}")
+	private double traceSampleRate;
+	
+	public DiscountService(final MeterRegistry meterRegistry) {
+		Counter coalesced = Counter.builder("pricing.coalesced")
+				.description("Best discount requests that shared an in-flight computation of an identical cart")
+				.register(meterRegistry);
+		this.bestDiscountFlights = new SingleFlight<>(coalesced::increment);
+	}
+	
 	/**
 	 * Adds the discount to repository. 
 	 * If discountId already exists in repository, 
@@ -45,173 +68,80 @@ public class DiscountService {
 			throw new ResourceAlreadyExistsException();
 		}
 
-		Discount savedDiscount = repository.save(new Discount(discountDto));
+		Discount savedDiscount;
+		catalog.beginChange();
+		try {
+			savedDiscount = repository.save(new Discount(discountDto));
+		} finally {
+			catalog.endChange(true);
+		}
 		return new DiscountDto(savedDiscount);
 	}
 	
 	/**
 	 * Removes the discount with given discountId. 
-	 * If discountId does not exist, then it simply returns
+	 * If discountId does not exist, then it simply returns without publishing a new catalog version
 	 * 
 	 * @param discountId
 	 */
 	public void removeDiscount(@NonNull final String discountId) {
-		repository.deleteById(discountId);
-		
+		// unknown until the delete returns; only a delete that removed nothing leaves the version alone
+		long deleted = -1;
+		catalog.beginChange();
+		try {
+			deleted = repository.removeById(discountId);
+		} finally {
+			catalog.endChange(deleted != 0);
+		}
 	}
 	
 	/**
 	 * Method applies the discount with greatest dollar value for the given cart.
 	 * If no discount applies, then the method will return a response with discountId NO_DISCOUNT_ID 
 	 * and percentage discount of zero.
+	 * Concurrent requests for the same cart fingerprint share a single evaluation.
+	 * Traced requests, either asked for or sampled, are evaluated on their own 
+	 * and their decision is kept in the trace buffer.
+	 * The response reports the catalog version it was priced with. If the catalog is older than 
+	 * minCatalogVersion even after a refresh, then it throws CatalogVersionNotAvailable runtime exception.
 	 * 
 	 * @param cart
+	 * @param trace true to record the decision
+	 * @param minCatalogVersion lowest acceptable catalog version, zero for any
 	 * @return return discountId and cartTotal after applying discount.
 	 */
-	public AppliedDiscount getBestDiscount(@NonNull final Cart cart) {
-
+	public AppliedDiscount getBestDiscount(@NonNull final Cart cart, final boolean trace, final long minCatalogVersion) {
 		
-
-		BigDecimal totalWithoutDiscount = getTotalForCartItems(cart.getCartItems());
+		CatalogSnapshot snapshot = catalog.getSnapshot(minCatalogVersion);
 		
-		/*
-		 * For simplicity we are getting all available discounts from the repository. If the number of
-		 * discounts is too great, we should query for the results that match ANY of the below conditions
-		 * 
-		 * 1. discountType == TOTAL_COST && totalCost < maxItemCost
-		 * 2. discountType == ITEM_TYPE && itemType IN getItemTypesSet(cart)
-		 * 3. discountType == QUANTITY && itemId in getAllItemIds(cart) && quantity <= getMaxItemQuantity(cart)
-		 */
-		List<Discount> allDiscounts = repository.findAll();
+		if (trace || (traceSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < traceSampleRate)) {
+			return evaluateTraced(cart, snapshot);
+		}
 		
-		Optional<AppliedDiscount> appliedDiscount = allDiscounts.stream()
-				.map(discount -> new AppliedDiscount(discount.getId(), getCartTotal(cart, discount)))
-				.min(Comparator.comparing(AppliedDiscount::getTotalCostAfterDiscount));
+		String key = snapshot.getVersion() + "/" + cart.getFingerprint();
 		
-		return appliedDiscount
-			.filter(t -> t.getTotalCostAfterDiscount().compareTo(totalWithoutDiscount) < 0)
-			.orElse(new AppliedDiscount(NO_DISCOUNT_ID, totalWithoutDiscount));
-				
-
-	}
-	
-	/**
-	 * Calculates cartTotal without any discount.
-	 * 
-	 * @param cartItems
-	 * @return
-	 */
-	private BigDecimal getTotalForCartItems(List<CartItem> cartItems) {
-		return 	cartItems.stream()
-				.map(DiscountService::getCartItemTotal)
-				.reduce(BigDecimal.ZERO, BigDecimal::add);
-	}
-	
-	/**
-	 * Calculates total dollar value of the cart after applying the given discount
-	 * 
-	 * @param cart
-	 * @param discount
-	 * @return total value of cart after discount is applied
-	 */
-	private BigDecimal getCartTotal(final Cart cart, final Discount discount) {
-
-		switch (discount.getDiscountType()) {
-			case ITEM_COST:
-				return getTotalForItemCostDiscount(cart, discount);
-			case ITEM_TYPE:
-				return getTotalForItemTypeDiscount(cart, discount);
-			case QUANTITY:
-				return getTotalForQuantityDiscount(cart, discount);
-			default:
-				throw new RuntimeException("Unknown discountType " + discount.getDiscountType());
-				
-		}
-	}
-
-	/**
-	 * Applies the discountPercentage to all items if cost of item is strictly greater than the 
-	 * itemCost configured for the discount.
-	 * 
-	 * @param cart
-	 * @param discount
-	 * @return cartTotal after applying discount
-	 */
-	private BigDecimal getTotalForItemCostDiscount(final Cart cart, final Discount discount) {
-
-		return cart.getCartItems().stream()
-				.filter(cartItem -> cartItem.getItem().getCost().compareTo(discount.getItemCost()) > 0)
-				.map(cartItem -> applyDiscount(cartItem, discount.getDiscountPercentage()))
-				.reduce(BigDecimal.ZERO, BigDecimal::add)
-				.add(
-					cart.getCartItems().stream()
-					.filter(cartItem -> cartItem.getItem().getCost().compareTo(discount.getItemCost()) <= 0)
-					.map(DiscountService::getCartItemTotal)
-					.reduce(BigDecimal.ZERO, BigDecimal::add)
-					);
-	}
-	
-	/**
-	 * Applies percentage discount to all cartItems that match the itemType and no discount to others.
-	 * 
-	 * @param cart
-	 * @param discount
-	 * @return cartTotal after applying discount
-	 */
-	private BigDecimal getTotalForItemTypeDiscount(final Cart cart, final Discount discount) {
-
-		return cart.getCartItems().stream()
-				.filter(cartItem -> discount.getItemType() == cartItem.getItem().getItemType())
-				.map(cartItem -> applyDiscount(cartItem, discount.getDiscountPercentage()))
-				.reduce(BigDecimal.ZERO, BigDecimal::add)
-				.add(
-					cart.getCartItems().stream()
-					.filter(cartItem -> discount.getItemType() != cartItem.getItem().getItemType())
-					.map(DiscountService::getCartItemTotal)
-					.reduce(BigDecimal.ZERO, BigDecimal::add)
-				);
-
+		return bestDiscountFlights.execute(key, () -> evaluate(evaluator.summarize(cart), snapshot, null));
 	}
 	
-	/**
-	 * Applies percentage discount to all cartItems with matching itemId and quantity greater than or equal to quantity.
-	 * 
-	 * @param cart
-	 * @param discount
-	 * @return cartTotal after applying discount
-	 */
-	private BigDecimal getTotalForQuantityDiscount(final Cart cart, final Discount discount) {
-
-		return cart.getCartItems().stream()
-				.filter(cartItem -> cartItem.getItem().getId().equals(discount.getItemId()) && cartItem.getQuantity() >= discount.getQuantity())
-				.map(cartItem -> applyDiscount(cartItem, discount.getDiscountPercentage()))
-				.reduce(BigDecimal.ZERO, BigDecimal::add)
-				.add(
-					cart.getCartItems().stream()
-					.filter(cartItem -> !(cartItem.getItem().getId().equals(discount.getItemId()) && cartItem.getQuantity() >= discount.getQuantity()))
-					.map(DiscountService::getCartItemTotal)
-					.reduce(BigDecimal.ZERO, BigDecimal::add)
-				);
-	}
-	
-	/**
-	 * Applies percentage discount to the cartItem and returns total cartItem value after discount.
-	 * 
-	 * @param cartItem
-	 * @param discountPercentage
-	 * @return cartItem total after apply discount
-	 */
-	private BigDecimal applyDiscount(final CartItem cartItem, final BigDecimal discountPercentage) {
+	private AppliedDiscount evaluateTraced(final Cart cart, final CatalogSnapshot snapshot) {
+		
+		CartSummary cartSummary = evaluator.summarize(cart);
+		DecisionTraceRecorder recorder = new DecisionTraceRecorder();
+		AppliedDiscount appliedDiscount = evaluate(cartSummary, snapshot, recorder);
+		
+		String traceId = UUID.randomUUID().toString();
+		traceBuffer.add(recorder.finish(traceId, cart.getFingerprint(), cartSummary.getTotalWithoutDiscount(), appliedDiscount));
 		
-		return cartItem.getItem().getCost()
-				.multiply(BigDecimal.valueOf(cartItem.getQuantity())) 
-				.multiply(BigDecimal.valueOf(100).subtract(discountPercentage).divide(BigDecimal.valueOf(100)));
+		appliedDiscount.setTraceId(traceId);
+		return appliedDiscount;
 	}
 	
-	private static BigDecimal getCartItemTotal(final CartItem cartItem) {
-		return cartItem.getItem().getCost().multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-	}
+	private AppliedDiscount evaluate(final CartSummary cartSummary, final CatalogSnapshot snapshot, 
+			final DecisionTraceRecorder recorder) {
 
-		
+		AppliedDiscount appliedDiscount = evaluator.getBestDiscount(cartSummary, snapshot.getDiscounts(), recorder);
+		appliedDiscount.setCatalogVersion(snapshot.getVersion());
+		return appliedDiscount;
+	}
 	
 }
@@ -0,0 +1,135 @@
+/**
+ * 
+ */
+package com.bsura.demo.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+
+import com.bsura.demo.data.model.CartSample;
+import com.bsura.demo.data.model.Discount;
+import com.bsura.demo.data.repositories.CartSampleRepository;
+import com.bsura.demo.exception.ResourceAlreadyExistsException;
+import com.bsura.demo.exception.ResourceNotFoundException;
+import com.bsura.demo.rest.model.Cart;
+import com.bsura.demo.rest.model.SimulationRequest;
+import com.bsura.demo.rest.model.SimulationResult;
+import com.bsura.demo.rest.model.WinnerChange;
+
+/**
+ * What-if pricing of a candidate catalog against the live one. Only reads the discounts collection.
+ */
+@Service
+public class SimulationService {
+
+	@Autowired
+	private DiscountCatalog catalog;
+
+	@Autowired
+	private CartSampleRepository cartSampleRepository;
+
+	@Autowired
+	private DiscountEvaluator evaluator;
+
+	/**
+	 * Stores or replaces the cart sample with the given id.
+	 * 
+	 * @param sampleId
+	 * @param carts
+	 */
+	public void saveCartSample(@NonNull final String sampleId, @NonNull final List<Cart> carts) {
+		cartSampleRepository.save(new CartSample(sampleId, carts));
+	}
+
+	/**
+	 * Prices every cart against the live catalog and against the live catalog with the requested
+	 * removals and additions applied. Each cart is summarized once and every discount is evaluated
+	 * at most once per cart; discounts present in both catalogs share the result.
+	 * If an addition reuses the id of a live discount that is not removed, then it throws
+	 * ResourceAlreadyExists runtime exception.
+	 * 
+	 * @param request
+	 * @return winner changes and savings deltas between the two catalogs
+	 */
+	public SimulationResult simulate(@NonNull final SimulationRequest request) {
+
+		List<Cart> carts = request.getCarts()
+				.orElseGet(() -> cartSampleRepository.findById(request.getSampleId().get())
+						.map(CartSample::getCarts)
+						.orElseThrow(ResourceNotFoundException::new));
+
+		CatalogSnapshot snapshot = catalog.getSnapshot(0);
+		List<Discount> liveCatalog = snapshot.getDiscounts();
+		Set<String> removals = new HashSet<>(request.getRemovals());
+		List<Discount> additions = request.getAdditions().stream().map(Discount::new).toList();
+
+		Set<String> candidateIds = new HashSet<>();
+		liveCatalog.stream()
+				.map(Discount::getId)
+				.filter(id -> !removals.contains(id))
+				.forEach(candidateIds::add);
+		for (Discount addition : additions) {
+			if (!candidateIds.add(addition.getId())) {
+				throw new ResourceAlreadyExistsException();
+			}
+		}
+
+		BigDecimal liveTotal = BigDecimal.ZERO;
+		BigDecimal candidateTotal = BigDecimal.ZERO;
+		Map<String, BigDecimal> savingsDeltaPerDiscount = new TreeMap<>();
+		List<WinnerChange> winnerChanges = new ArrayList<>();
+
+		for (int cartIndex = 0; cartIndex < carts.size(); cartIndex++) {
+			CartSummary cartSummary = evaluator.summarize(carts.get(cartIndex));
+			BigDecimal totalWithoutDiscount = cartSummary.getTotalWithoutDiscount();
+
+			String liveId = DiscountEvaluator.NO_DISCOUNT_ID;
+			BigDecimal liveBest = totalWithoutDiscount;
+			String candidateId = DiscountEvaluator.NO_DISCOUNT_ID;
+			BigDecimal candidateBest = totalWithoutDiscount;
+
+			for (Discount discount : liveCatalog) {
+				BigDecimal total = evaluator.getCartTotal(cartSummary, discount);
+				if (total.compareTo(liveBest) < 0) {
+					liveId = discount.getId();
+					liveBest = total;
+				}
+				if (!removals.contains(discount.getId()) && total.compareTo(candidateBest) < 0) {
+					candidateId = discount.getId();
+					candidateBest = total;
+				}
+			}
+			for (Discount discount : additions) {
+				BigDecimal total = evaluator.getCartTotal(cartSummary, discount);
+				if (total.compareTo(candidateBest) < 0) {
+					candidateId = discount.getId();
+					candidateBest = total;
+				}
+			}
+
+			liveTotal = liveTotal.add(liveBest);
+			candidateTotal = candidateTotal.add(candidateBest);
+
+			if (!liveId.equals(candidateId)) {
+				winnerChanges.add(new WinnerChange(cartIndex, liveId, liveBest, candidateId, candidateBest));
+			}
+			savingsDeltaPerDiscount.merge(liveId, liveBest.subtract(totalWithoutDiscount), BigDecimal::add);
+			savingsDeltaPerDiscount.merge(candidateId, totalWithoutDiscount.subtract(candidateBest), BigDecimal::add);
+		}
+
+		savingsDeltaPerDiscount.remove(DiscountEvaluator.NO_DISCOUNT_ID);
+
+		return new SimulationResult(snapshot.getVersion(), carts.size(), liveTotal, candidateTotal, liveTotal.subtract(candidateTotal),
+				savingsDeltaPerDiscount, winnerChanges);
+	}
+
+}
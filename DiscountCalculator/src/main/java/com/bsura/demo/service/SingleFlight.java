@@ -0,0 +1,61 @@
+/**
+ * 
+ */
+package com.bsura.demo.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent computations with the same key: the first caller computes the value,
+ * callers arriving while it is in flight wait for and share that value. 
+ * Nothing is cached once the computation completes.
+ * 
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class SingleFlight<K, V> {
+
+	private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final Runnable onCoalesced;
+	
+	/**
+	 * @param onCoalesced called for every caller that joins a computation started by another caller
+	 */
+	public SingleFlight(final Runnable onCoalesced) {
+		this.onCoalesced = onCoalesced;
+	}
+	
+	public V execute(final K key, final Supplier<V> computation) {
+		
+		CompletableFuture<V> created = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+		
+		if (existing != null) {
+			onCoalesced.run();
+			try {
+				return existing.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException cause) {
+					throw cause;
+				}
+				throw e;
+			}
+		}
+		
+		try {
+			V value = computation.get();
+			created.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			created.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, created);
+		}
+	}
+
+}
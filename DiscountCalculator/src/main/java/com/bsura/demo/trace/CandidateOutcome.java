@@ -0,0 +1,16 @@
+/**
+ * 
+ */
+package com.bsura.demo.trace;
+
+/**
+ * Why a discount considered for a cart was or was not applied.
+ */
+public enum CandidateOutcome {
+
+	APPLIED,
+	// the discount does not lower the cart total, e.g. no cart item matches it
+	NO_SAVINGS,
+	// another discount saves more, or as much and comes first in the catalog
+	OUTBID
+}
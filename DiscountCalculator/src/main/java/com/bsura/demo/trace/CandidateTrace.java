@@ -0,0 +1,28 @@
+/**
+ * 
+ */
+package com.bsura.demo.trace;
+
+import java.math.BigDecimal;
+
+import com.bsura.demo.rest.model.DiscountType;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CandidateTrace {
+
+	private String discountId;
+	private DiscountType discountType;
+	private BigDecimal totalCostAfterDiscount;
+	private BigDecimal savings;
+	private CandidateOutcome outcome;
+
+}
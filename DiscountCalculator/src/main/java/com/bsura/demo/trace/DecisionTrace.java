@@ -0,0 +1,30 @@
+/**
+ * 
+ */
+package com.bsura.demo.trace;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Record of one best discount decision: every candidate considered, its savings and its outcome.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DecisionTrace {
+
+	private String traceId;
+	private Instant timestamp;
+	private String cartFingerprint;
+	private BigDecimal totalCostBeforeDiscount;
+	private String discountId;
+	private BigDecimal totalCostAfterDiscount;
+	private List<CandidateTrace> candidates;
+
+}
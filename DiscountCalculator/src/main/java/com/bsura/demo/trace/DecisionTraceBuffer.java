@@ -0,0 +1,61 @@
+/**
+ * 
+ */
+package com.bsura.demo.trace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lock-free ring buffer keeping the most recent decision traces. 
+ * Writers claim a slot with a single atomic increment and overwrite the oldest trace.
+ */
+@Component
+public class DecisionTraceBuffer {
+
+	private final AtomicReferenceArray<Entry> slots;
+	private final int mask;
+	private final AtomicLong sequence = new AtomicLong();
+	
+	/**
+	 * @param capacity rounded up to the next power of two
+	 */
+	public DecisionTraceBuffer(@Value("${pricing.trace.capacity:1024}") final int capacity) {
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+	
+	public void add(final DecisionTrace trace) {
+		long position = sequence.getAndIncrement();
+		slots.set((int) (position & mask), new Entry(position, trace));
+	}
+	
+	/**
+	 * @return buffered traces, most recent first
+	 */
+	public List<DecisionTrace> getTraces() {
+		List<Entry> entries = new ArrayList<>(slots.length());
+		for (int i = 0; i < slots.length(); i++) {
+			Entry entry = slots.get(i);
+			if (entry != null) {
+				entries.add(entry);
+			}
+		}
+		
+		return entries.stream()
+				.sorted(Comparator.comparingLong(Entry::position).reversed())
+				.map(Entry::trace)
+				.toList();
+	}
+	
+	private record Entry(long position, DecisionTrace trace) {
+	}
+
+}
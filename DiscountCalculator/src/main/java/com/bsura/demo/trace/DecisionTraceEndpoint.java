@@ -0,0 +1,42 @@
+/**
+ * 
+ */
+package com.bsura.demo.trace;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint over the buffered decision traces: 
+ * /actuator/pricingtraces?discountId=ABC lists the traces that applied ABC, 
+ * /actuator/pricingtraces/{traceId} returns a single trace.
+ */
+@Component
+@Endpoint(id = "pricingtraces")
+public class DecisionTraceEndpoint {
+
+	@Autowired
+	private DecisionTraceBuffer buffer;
+	
+	@ReadOperation
+	public List<DecisionTrace> traces(@Nullable final String discountId) {
+		return buffer.getTraces().stream()
+				.filter(trace -> discountId == null || discountId.equals(trace.getDiscountId()))
+				.toList();
+	}
+	
+	@ReadOperation
+	public DecisionTrace trace(@Selector final String traceId) {
+		return buffer.getTraces().stream()
+				.filter(trace -> trace.getTraceId().equals(traceId))
+				.findFirst()
+				.orElse(null);
+	}
+
+}
@@ -0,0 +1,64 @@
+/**
+ * 
+ */
+package com.bsura.demo.trace;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bsura.demo.data.model.AppliedDiscount;
+import com.bsura.demo.data.model.Discount;
+
+/**
+ * Collects the candidates of a single traced evaluation. Not thread-safe; one recorder per request.
+ */
+public class DecisionTraceRecorder {
+
+	private final List<Discount> discounts = new ArrayList<>();
+	private final List<BigDecimal> totals = new ArrayList<>();
+	
+	public void candidate(final Discount discount, final BigDecimal totalCostAfterDiscount) {
+		discounts.add(discount);
+		totals.add(totalCostAfterDiscount);
+	}
+	
+	/**
+	 * Builds the trace once the winner is known.
+	 * 
+	 * @param traceId
+	 * @param cartFingerprint
+	 * @param totalCostBeforeDiscount
+	 * @param appliedDiscount winner of the evaluation
+	 * @return trace of the decision
+	 */
+	public DecisionTrace finish(final String traceId, final String cartFingerprint, 
+			final BigDecimal totalCostBeforeDiscount, final AppliedDiscount appliedDiscount) {
+		
+		List<CandidateTrace> candidates = new ArrayList<>(discounts.size());
+		boolean applied = false;
+		
+		for (int i = 0; i < discounts.size(); i++) {
+			Discount discount = discounts.get(i);
+			BigDecimal total = totals.get(i);
+			
+			CandidateOutcome outcome;
+			if (total.compareTo(totalCostBeforeDiscount) >= 0) {
+				outcome = CandidateOutcome.NO_SAVINGS;
+			} else if (!applied && discount.getId().equals(appliedDiscount.getDiscountId())) {
+				outcome = CandidateOutcome.APPLIED;
+				applied = true;
+			} else {
+				outcome = CandidateOutcome.OUTBID;
+			}
+			
+			candidates.add(new CandidateTrace(discount.getId(), discount.getDiscountType(), total, 
+					totalCostBeforeDiscount.subtract(total), outcome));
+		}
+		
+		return new DecisionTrace(traceId, Instant.now(), cartFingerprint, totalCostBeforeDiscount, 
+				appliedDiscount.getDiscountId(), appliedDiscount.getTotalCostAfterDiscount(), candidates);
+	}
+
+}
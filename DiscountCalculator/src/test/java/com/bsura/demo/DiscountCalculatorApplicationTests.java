@@ -1,8 +1,10 @@
 package com.bsura.demo;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +16,8 @@ import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -22,9 +26,16 @@ import com.bsura.demo.data.model.Discount;
 import com.bsura.demo.rest.model.Cart;
 import com.bsura.demo.rest.model.CartItem;
 import com.bsura.demo.rest.model.DiscountDto;
+import com.bsura.demo.rest.model.DiscountTier;
 import com.bsura.demo.rest.model.DiscountType;
 import com.bsura.demo.rest.model.Item;
 import com.bsura.demo.rest.model.ItemType;
+import com.bsura.demo.rest.model.SimulationRequest;
+import com.bsura.demo.rest.model.SimulationResult;
+import com.bsura.demo.rest.model.WinnerChange;
+import com.bsura.demo.trace.CandidateOutcome;
+import com.bsura.demo.trace.CandidateTrace;
+import com.bsura.demo.trace.DecisionTrace;
 
 @SpringBootTest(webEnvironment=WebEnvironment.RANDOM_PORT)
 class DiscountCalculatorApplicationTests {
@@ -33,6 +44,9 @@ class DiscountCalculatorApplicationTests {
 	private static final String CREATE_ENDPOINT = "/discounts/add";
 	private static final String DELETE_ENDPOINT = "/discounts/";
 	private static final String BEST_DISCOUNT_ENDPOINT = "/discounts/";
+	private static final String SIMULATE_ENDPOINT = "/discounts/simulate";
+	private static final String SAMPLES_ENDPOINT = "/discounts/samples/";
+	private static final String TRACES_ENDPOINT = "/actuator/pricingtraces/";
 	
 	@LocalServerPort
 	private int port;
@@ -203,6 +217,256 @@ class DiscountCalculatorApplicationTests {
 		
 	}
 	
+	/**
+	 * GIVEN
+	 * Discount ABC exists that gives 10% off all items of type CLOTHES
+	 * WHEN
+	 * User submits requests to calculate the best discount for a $50 shirt(id: 123, type: CLOTHES, cost: $50)
+	 * requiring the current catalog version, a version that does not exist yet, 
+	 * and the version published by removing ABC
+	 * THEN
+	 * The system should report the catalog version used, reject the unknown version with 412
+	 * and no longer apply ABC once its removal is required
+	 */
+	@Test
+	void testGetDiscountMinCatalogVersion() {
+		DiscountDto discountDto = new DiscountDto("ABC", DiscountType.ITEM_TYPE, BigDecimal.TEN, 
+				Optional.of(ItemType.CLOTHES), Optional.empty(), Optional.empty(), Optional.empty());
+		addDiscount(discountDto);
+		
+		Cart cart = new Cart();
+		Item item = new Item("123", ItemType.CLOTHES, BigDecimal.valueOf(50));
+		cart.setCartItems(List.of(new CartItem(1, item)));
+		
+		AppliedDiscount appliedDiscount =
+		restTemplate.postForEntity(HOST_PREFIX + port + BEST_DISCOUNT_ENDPOINT, cart, AppliedDiscount.class).getBody();
+		assertThat(appliedDiscount.getDiscountId()).isEqualTo("ABC");
+		assertThat(appliedDiscount.getCatalogVersion()).isNotNull();
+		long version = appliedDiscount.getCatalogVersion();
+		
+		ResponseEntity<AppliedDiscount> responseEntity = restTemplate.postForEntity(
+				HOST_PREFIX + port + BEST_DISCOUNT_ENDPOINT + "?minCatalogVersion=" + version, cart, AppliedDiscount.class);
+		assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+		
+		responseEntity = restTemplate.postForEntity(
+				HOST_PREFIX + port + BEST_DISCOUNT_ENDPOINT + "?minCatalogVersion=" + (version + 1000), cart, AppliedDiscount.class);
+		assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+		
+		restTemplate.delete(HOST_PREFIX + port + DELETE_ENDPOINT + "ABC");
+		
+		appliedDiscount = restTemplate.postForEntity(
+				HOST_PREFIX + port + BEST_DISCOUNT_ENDPOINT + "?minCatalogVersion=" + (version + 1), cart, AppliedDiscount.class).getBody();
+		assertThat(appliedDiscount.getDiscountId()).isEqualTo("NoDiscount");
+		assertThat(appliedDiscount.getCatalogVersion()).isGreaterThan(version);
+	}
+	
+	/**
+	 * GIVEN
+	 * Discount ABC exists that gives 10% off all items of type CLOTHES
+	 * Discount CDE exists that gives 15% off all items over $100
+	 * WHEN
+	 * User submits a traced request to calculate the best discount for a $50 shirt(id: 123, type: CLOTHES, cost: $50)
+	 * THEN
+	 * The system should response with discount ABC and a traceId, and the trace should show 
+	 * ABC as applied and CDE as not saving anything
+	 */
+	@Test
+	void testGetDiscountTraced() {
+		setupDiscounts();
+		
+		Cart cart = new Cart();
+		Item item = new Item("123", ItemType.CLOTHES, BigDecimal.valueOf(50));
+		cart.setCartItems(List.of(new CartItem(1, item)));
+		
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-Pricing-Trace", "true");
+		
+		ResponseEntity<AppliedDiscount> responseEntity =
+		restTemplate.postForEntity(HOST_PREFIX + port + BEST_DISCOUNT_ENDPOINT, new HttpEntity<>(cart, headers), AppliedDiscount.class);
+		assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(responseEntity.getBody().getDiscountId()).isEqualTo("ABC");
+		assertThat(responseEntity.getBody().getTraceId()).isNotNull();
+		
+		ResponseEntity<DecisionTrace> traceEntity = restTemplate.getForEntity(
+				HOST_PREFIX + port + TRACES_ENDPOINT + responseEntity.getBody().getTraceId(), DecisionTrace.class);
+		assertThat(traceEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+		
+		DecisionTrace trace = traceEntity.getBody();
+		assertThat(trace.getDiscountId()).isEqualTo("ABC");
+		assertThat(trace.getCandidates())
+			.extracting(CandidateTrace::getDiscountId, CandidateTrace::getOutcome)
+			.containsExactlyInAnyOrder(
+					tuple("ABC", CandidateOutcome.APPLIED), 
+					tuple("CDE", CandidateOutcome.NO_SAVINGS));
+	}
+	
+	/**
+	 * GIVEN
+	 * Discount ABC exists that gives 10% off all items of type CLOTHES
+	 * Discount CDE exists that gives 15% off all items over $100
+	 * Discount TQ exists that gives 10% off 5, 15% off 10 and 25% off 50 or more shirts with id 123
+	 * WHEN
+	 * User submits a request to calculate the best discount for 12 $50 shirts(id: 123, type: CLOTHES, cost: $50) 
+	 * split over two cart items
+	 * THEN
+	 * The system should response with discount TQ and a total cost of $510
+	 */
+	@Test
+	void testGetDiscountTieredQuantity() {
+		setupDiscounts();
+		
+		DiscountDto discountDto = new DiscountDto("TQ", DiscountType.TIERED_QUANTITY, null, 
+				Optional.empty(), Optional.empty(), Optional.empty(), Optional.of("123"),
+				Optional.of(List.of(
+						new DiscountTier(BigDecimal.valueOf(50), BigDecimal.valueOf(25)),
+						new DiscountTier(BigDecimal.valueOf(5), BigDecimal.valueOf(10)),
+						new DiscountTier(BigDecimal.valueOf(10), BigDecimal.valueOf(15)))));
+		
+		addDiscount(discountDto);
+		
+		Cart cart = new Cart();
+		Item item = new Item("123", ItemType.CLOTHES, BigDecimal.valueOf(50));
+		cart.setCartItems(List.of(new CartItem(8, item), new CartItem(4, item)));
+		
+		ResponseEntity<AppliedDiscount> responseEntity =
+		restTemplate.postForEntity(HOST_PREFIX + port + BEST_DISCOUNT_ENDPOINT, cart, AppliedDiscount.class);
+		assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+		
+		AppliedDiscount appliedDiscount = responseEntity.getBody();
+		assertThat(appliedDiscount.getDiscountId()).isEqualTo("TQ");
+		assertThat(appliedDiscount.getTotalCostAfterDiscount().compareTo(BigDecimal.valueOf(510)))
+		.withFailMessage("Total cost after discount is expected 510 but found %s", appliedDiscount.getTotalCostAfterDiscount())
+		.isEqualTo(0);
+	}
+	
+	/**
+	 * GIVEN
+	 * Discount ABC exists that gives 10% off all items of type CLOTHES
+	 * Discount CDE exists that gives 15% off all items over $100
+	 * Discount TS exists that gives 5% off carts of $100 and 20% off carts of $500 or more
+	 * WHEN
+	 * User submits a request to calculate the best discount for
+	 * one $50 shirt(id: 123, type: CLOTHES, cost: $50)
+	 * one $300 TV(id: 456, type: ELECTRONICS, cost: $300)
+	 * THEN
+	 * The system should response with discount CDE and a total cost of $305 as TS only gives 5% on $350
+	 * and, once a second TV is added, with discount TS and a total cost of $520
+	 */
+	@Test
+	void testGetDiscountTieredSpend() {
+		setupDiscounts();
+		
+		DiscountDto discountDto = new DiscountDto("TS", DiscountType.TIERED_SPEND, null, 
+				Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+				Optional.of(List.of(
+						new DiscountTier(BigDecimal.valueOf(100), BigDecimal.valueOf(5)),
+						new DiscountTier(BigDecimal.valueOf(500), BigDecimal.valueOf(20)))));
+		
+		addDiscount(discountDto);
+		
+		Cart cart = new Cart();
+		Item item1 = new Item("123", ItemType.CLOTHES, BigDecimal.valueOf(50));
+		Item item2 = new Item("456", ItemType.ELECTRONICS, BigDecimal.valueOf(300));
+		cart.setCartItems(List.of(new CartItem(1, item1), new CartItem(1, item2)));
+		
+		AppliedDiscount appliedDiscount =
+		restTemplate.postForEntity(HOST_PREFIX + port + BEST_DISCOUNT_ENDPOINT, cart, AppliedDiscount.class).getBody();
+		assertThat(appliedDiscount.getDiscountId()).isEqualTo("CDE");
+		assertThat(appliedDiscount.getTotalCostAfterDiscount().compareTo(BigDecimal.valueOf(305))).isEqualTo(0);
+		
+		cart.setCartItems(List.of(new CartItem(1, item1), new CartItem(2, item2)));
+		
+		appliedDiscount =
+		restTemplate.postForEntity(HOST_PREFIX + port + BEST_DISCOUNT_ENDPOINT, cart, AppliedDiscount.class).getBody();
+		assertThat(appliedDiscount.getDiscountId()).isEqualTo("TS");
+		assertThat(appliedDiscount.getTotalCostAfterDiscount().compareTo(BigDecimal.valueOf(520))).isEqualTo(0);
+	}
+	
+	/**
+	 * GIVEN
+	 * Discount ABC exists that gives 10% off all items of type CLOTHES
+	 * Discount CDE exists that gives 15% off all items over $100
+	 * A stored sample with a cart of one $50 shirt and one $300 TV and a cart of one $50 shirt
+	 * WHEN
+	 * User simulates removing CDE and adding TV20 that gives 20% off all items of type ELECTRONICS
+	 * THEN
+	 * The first cart moves from CDE ($305) to TV20 ($290), the second cart stays on ABC ($45)
+	 * and the discounts collection is left untouched
+	 */
+	@Test
+	void testSimulateCandidateCatalog() {
+		setupDiscounts();
+		
+		Item shirt = new Item("123", ItemType.CLOTHES, BigDecimal.valueOf(50));
+		Item tv = new Item("456", ItemType.ELECTRONICS, BigDecimal.valueOf(300));
+		Cart cart1 = new Cart();
+		cart1.setCartItems(List.of(new CartItem(1, shirt), new CartItem(1, tv)));
+		Cart cart2 = new Cart();
+		cart2.setCartItems(List.of(new CartItem(1, shirt)));
+		
+		restTemplate.put(HOST_PREFIX + port + SAMPLES_ENDPOINT + "sample1", List.of(cart1, cart2));
+		
+		DiscountDto tvDiscount = new DiscountDto("TV20", DiscountType.ITEM_TYPE, BigDecimal.valueOf(20), 
+				Optional.of(ItemType.ELECTRONICS), Optional.empty(), Optional.empty(), Optional.empty());
+		SimulationRequest request = new SimulationRequest(Optional.empty(), Optional.of("sample1"), 
+				List.of(tvDiscount), List.of("CDE"));
+		
+		ResponseEntity<SimulationResult> responseEntity =
+		restTemplate.postForEntity(HOST_PREFIX + port + SIMULATE_ENDPOINT, request, SimulationResult.class);
+		assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+		
+		SimulationResult result = responseEntity.getBody();
+		assertThat(result.getCartCount()).isEqualTo(2);
+		assertThat(result.getSavingsDelta().compareTo(BigDecimal.valueOf(15))).isEqualTo(0);
+		assertThat(result.getSavingsDeltaPerDiscount().get("CDE").compareTo(BigDecimal.valueOf(-45))).isEqualTo(0);
+		assertThat(result.getSavingsDeltaPerDiscount().get("TV20").compareTo(BigDecimal.valueOf(60))).isEqualTo(0);
+		assertThat(result.getWinnerChanges()).hasSize(1);
+		
+		WinnerChange winnerChange = result.getWinnerChanges().get(0);
+		assertThat(winnerChange.getCartIndex()).isEqualTo(0);
+		assertThat(winnerChange.getLiveDiscountId()).isEqualTo("CDE");
+		assertThat(winnerChange.getCandidateDiscountId()).isEqualTo("TV20");
+		assertThat(winnerChange.getCandidateTotalCostAfterDiscount().compareTo(BigDecimal.valueOf(290))).isEqualTo(0);
+		
+		assertThat(mongoTemplate.findAll(Discount.class).size()).isEqualTo(2);
+	}
+	
+	/**
+	 * GIVEN
+	 * Discount ABC exists that gives 10% off all items of type CLOTHES
+	 * WHEN
+	 * User simulates adding a discount without discountType, or a tiered discount with a missing tier
+	 * THEN
+	 * The system should reject the request with 400
+	 */
+	@Test
+	void testSimulateInvalidAddition() {
+		DiscountDto discountDto = new DiscountDto("ABC", DiscountType.ITEM_TYPE, BigDecimal.TEN, 
+				Optional.of(ItemType.CLOTHES), Optional.empty(), Optional.empty(), Optional.empty());
+		addDiscount(discountDto);
+		
+		Cart cart = new Cart();
+		cart.setCartItems(List.of(new CartItem(1, new Item("123", ItemType.CLOTHES, BigDecimal.valueOf(50)))));
+		
+		DiscountDto noType = new DiscountDto("NOTYPE", null, BigDecimal.TEN, 
+				Optional.of(ItemType.CLOTHES), Optional.empty(), Optional.empty(), Optional.empty());
+		SimulationRequest request = new SimulationRequest(Optional.of(List.of(cart)), Optional.empty(), 
+				List.of(noType), List.of());
+		
+		ResponseEntity<String> responseEntity =
+		restTemplate.postForEntity(HOST_PREFIX + port + SIMULATE_ENDPOINT, request, String.class);
+		assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		
+		DiscountDto missingTier = new DiscountDto("TS", DiscountType.TIERED_SPEND, null, 
+				Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+				Optional.of(Arrays.asList(new DiscountTier(BigDecimal.valueOf(100), BigDecimal.valueOf(5)), null)));
+		request.setAdditions(List.of(missingTier));
+		
+		responseEntity =
+		restTemplate.postForEntity(HOST_PREFIX + port + SIMULATE_ENDPOINT, request, String.class);
+		assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+	
 	/**
 	 * creates ABC and CDE discounts
 	 */
@@ -0,0 +1,315 @@
+package com.bsura.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.bsura.demo.data.model.Discount;
+import com.bsura.demo.rest.model.Cart;
+import com.bsura.demo.rest.model.CartItem;
+import com.bsura.demo.rest.model.DiscountDto;
+import com.bsura.demo.rest.model.DiscountTier;
+import com.bsura.demo.rest.model.DiscountType;
+import com.bsura.demo.rest.model.Item;
+import com.bsura.demo.rest.model.ItemType;
+import com.bsura.demo.service.DiscountCatalog;
+
+/**
+ * Load tests for the REST endpoints against embedded Mongo. Excluded from the default build, run with
+ *
+ * mvn test -Pload-test -Dload.ratePerSecond=2000 -Dload.concurrency=32 -Dload.durationSeconds=60 -Dload.catalogSize=1000
+ *
+ * Requests are sent at the fixed load.ratePerSecond, spread over load.concurrency threads, and latency is
+ * measured from the time each request was scheduled to be sent. A stall therefore shows up in the latency
+ * of every request queued behind it instead of slowing the senders down and hiding it.
+ *
+ * Every scenario writes HdrHistogram percentile distributions (microseconds) and a summary with
+ * throughput and p50/p90/p99/p99.9/max to target/load-test so that releases can be compared:
+ * scenario.hgrm measured from the scheduled start, scenario-service-time.hgrm from the actual send.
+ * Setting load.slo.p99Millis fails the scenario when its p99 latency from the scheduled start exceeds the SLO.
+ *
+ * Admission control is disabled unless -Dload.admission=true; when enabled, 429 and 503 responses are
+ * counted as rejected, left out of the latencies and do not fail the scenario.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment=WebEnvironment.RANDOM_PORT, properties = "admission.enabled=${load.admission:false}")
+class DiscountLoadTests {
+
+	private static final String HOST_PREFIX = "http://localhost:";
+	private static final String CREATE_ENDPOINT = "/discounts/add";
+	private static final String BEST_DISCOUNT_ENDPOINT = "/discounts/";
+	private static final Path REPORT_DIR = Path.of("target", "load-test");
+
+	private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 16);
+	private static final double RATE_PER_SECOND = Double.parseDouble(System.getProperty("load.ratePerSecond", "500"));
+	private static final int WARMUP_SECONDS = Integer.getInteger("load.warmupSeconds", 5);
+	private static final int DURATION_SECONDS = Integer.getInteger("load.durationSeconds", 30);
+	private static final int CATALOG_SIZE = Integer.getInteger("load.catalogSize", 100);
+	private static final int DISTINCT_ITEMS = Integer.getInteger("load.distinctItems", 1000);
+	private static final int MAX_CART_ITEMS = Integer.getInteger("load.maxCartItems", 5);
+	// uniform: every cart is random, hot: load.hotCartRatio of the requests reuse a few popular carts
+	private static final String CART_DISTRIBUTION = System.getProperty("load.cartDistribution", "uniform");
+	private static final double HOT_CART_RATIO = Double.parseDouble(System.getProperty("load.hotCartRatio", "0.8"));
+	private static final int HOT_CARTS = Integer.getInteger("load.hotCarts", 10);
+	private static final long SEED = Long.getLong("load.seed", 42L);
+	private static final String SLO_P99_MILLIS = System.getProperty("load.slo.p99Millis");
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private DiscountCatalog discountCatalog;
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate.getDb().drop();
+
+		Random random = new Random(SEED);
+		List<Discount> catalog = new ArrayList<>();
+		for (int i = 0; i < CATALOG_SIZE; i++) {
+			catalog.add(new Discount(randomDiscount("LOAD-" + i, random)));
+		}
+		// publish the seeded catalog like the create endpoint does, so that nodes reload it
+		discountCatalog.beginChange();
+		mongoTemplate.insertAll(catalog);
+		discountCatalog.endChange(true);
+	}
+
+	@Test
+	void loadBestDiscount() throws Exception {
+		List<Cart> hotCarts = new ArrayList<>();
+		Random hotRandom = new Random(SEED);
+		for (int i = 0; i < HOT_CARTS; i++) {
+			hotCarts.add(randomCart(hotRandom));
+		}
+
+		runScenario("best-discount", random -> {
+			Cart cart = "hot".equals(CART_DISTRIBUTION) && random.nextDouble() < HOT_CART_RATIO
+					? hotCarts.get(random.nextInt(hotCarts.size()))
+					: randomCart(random);
+			return restTemplate.postForEntity(HOST_PREFIX + port + BEST_DISCOUNT_ENDPOINT, cart, String.class);
+		});
+	}
+
+	@Test
+	void loadCreateDiscount() throws Exception {
+		AtomicLong sequence = new AtomicLong();
+
+		runScenario("create-discount", random -> {
+			DiscountDto discountDto = randomDiscount("ADD-" + sequence.incrementAndGet(), random);
+			return restTemplate.postForEntity(HOST_PREFIX + port + CREATE_ENDPOINT, discountDto, String.class);
+		});
+	}
+
+	/**
+	 * Sends the request at RATE_PER_SECOND from CONCURRENCY threads, first for the warmup period and then
+	 * for the measured period, and writes the report.
+	 *
+	 * @param scenario name used for the report files
+	 * @param request issues one request and returns the response
+	 */
+	private void runScenario(final String scenario, final Function<Random, ResponseEntity<String>> request) throws Exception {
+		drive(request, WARMUP_SECONDS);
+		Result result = drive(request, DURATION_SECONDS);
+
+		writeReport(scenario, result);
+
+		assertThat(result.errors).withFailMessage("%d of %d %s requests failed", result.errors, result.histogram.getTotalCount(), scenario)
+			.isEqualTo(0);
+		if (result.rejected > 0) {
+			System.out.printf("%d %s requests were rejected by admission control%n", result.rejected, scenario);
+		}
+		if (SLO_P99_MILLIS != null) {
+			double p99Millis = result.histogram.getValueAtPercentile(99.0) / 1000.0;
+			assertThat(p99Millis)
+				.withFailMessage("%s p99 %.2f ms exceeds SLO of %s ms", scenario, p99Millis, SLO_P99_MILLIS)
+				.isLessThanOrEqualTo(Double.parseDouble(SLO_P99_MILLIS));
+		}
+	}
+
+	private Result drive(final Function<Random, ResponseEntity<String>> request, final int seconds) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+		// each thread sends its share of the rate on its own schedule, staggered from the others
+		long intervalNanos = (long) (CONCURRENCY * 1_000_000_000.0 / RATE_PER_SECOND);
+		long started = System.nanoTime();
+		long deadline = started + TimeUnit.SECONDS.toNanos(seconds);
+
+		List<Future<Result>> futures = new ArrayList<>();
+		for (int i = 0; i < CONCURRENCY; i++) {
+			final Random random = new Random(SEED + i);
+			final long firstStart = started + intervalNanos * i / CONCURRENCY;
+			futures.add(executor.submit(() -> {
+				Result threadResult = new Result();
+				// a thread that falls behind sends its backlog straight away, and those requests are charged the wait
+				for (long scheduled = firstStart; scheduled < deadline; scheduled += intervalNanos) {
+					long wait;
+					while ((wait = scheduled - System.nanoTime()) > 0) {
+						LockSupport.parkNanos(wait);
+					}
+					long sent = System.nanoTime();
+					ResponseEntity<String> response = request.apply(random);
+					long received = System.nanoTime();
+
+					HttpStatus status = HttpStatus.resolve(response.getStatusCode().value());
+					if (status == HttpStatus.TOO_MANY_REQUESTS || status == HttpStatus.SERVICE_UNAVAILABLE) {
+						threadResult.rejected++;
+						continue;
+					}
+					threadResult.histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(received - scheduled));
+					threadResult.serviceTimeHistogram.recordValue(TimeUnit.NANOSECONDS.toMicros(received - sent));
+					if (!response.getStatusCode().is2xxSuccessful()) {
+						threadResult.errors++;
+					}
+				}
+				return threadResult;
+			}));
+		}
+
+		Result result = new Result();
+		for (Future<Result> future : futures) {
+			Result threadResult = future.get();
+			result.histogram.add(threadResult.histogram);
+			result.serviceTimeHistogram.add(threadResult.serviceTimeHistogram);
+			result.errors += threadResult.errors;
+			result.rejected += threadResult.rejected;
+		}
+		result.elapsedNanos = System.nanoTime() - started;
+		executor.shutdown();
+		return result;
+	}
+
+	private void writeReport(final String scenario, final Result result) throws IOException {
+		Files.createDirectories(REPORT_DIR);
+
+		try (PrintStream out = new PrintStream(REPORT_DIR.resolve(scenario + ".hgrm").toFile())) {
+			result.histogram.outputPercentileDistribution(out, 1000.0);
+		}
+		try (PrintStream out = new PrintStream(REPORT_DIR.resolve(scenario + "-service-time.hgrm").toFile())) {
+			result.serviceTimeHistogram.outputPercentileDistribution(out, 1000.0);
+		}
+
+		// latencies from the scheduled start, what a client sending at this rate sees, are the ones the SLO applies to
+		Histogram histogram = result.histogram;
+		Histogram serviceTime = result.serviceTimeHistogram;
+		double throughput = histogram.getTotalCount() / (result.elapsedNanos / 1_000_000_000.0);
+		String summary = String.format(
+				"scenario=%s%nconcurrency=%d%ntargetRatePerSecond=%.1f%ncatalogSize=%d%ncartDistribution=%s%n"
+				+ "requests=%d%nerrors=%d%nrejected=%d%nthroughputPerSecond=%.1f%n"
+				+ "p50Millis=%.3f%np90Millis=%.3f%np99Millis=%.3f%np999Millis=%.3f%nmaxMillis=%.3f%n"
+				+ "serviceTimeP50Millis=%.3f%nserviceTimeP90Millis=%.3f%nserviceTimeP99Millis=%.3f%n"
+				+ "serviceTimeP999Millis=%.3f%nserviceTimeMaxMillis=%.3f%n",
+				scenario, CONCURRENCY, RATE_PER_SECOND, CATALOG_SIZE, CART_DISTRIBUTION,
+				histogram.getTotalCount(), result.errors, result.rejected, throughput,
+				histogram.getValueAtPercentile(50.0) / 1000.0,
+				histogram.getValueAtPercentile(90.0) / 1000.0,
+				histogram.getValueAtPercentile(99.0) / 1000.0,
+				histogram.getValueAtPercentile(99.9) / 1000.0,
+				histogram.getMaxValue() / 1000.0,
+				serviceTime.getValueAtPercentile(50.0) / 1000.0,
+				serviceTime.getValueAtPercentile(90.0) / 1000.0,
+				serviceTime.getValueAtPercentile(99.0) / 1000.0,
+				serviceTime.getValueAtPercentile(99.9) / 1000.0,
+				serviceTime.getMaxValue() / 1000.0);
+
+		Files.writeString(REPORT_DIR.resolve(scenario + ".properties"), summary);
+		System.out.print(summary);
+	}
+
+	private static DiscountDto randomDiscount(final String id, final Random random) {
+		BigDecimal percentage = BigDecimal.valueOf(1 + random.nextInt(50));
+
+		switch (DiscountType.values()[random.nextInt(DiscountType.values().length)]) {
+			case ITEM_TYPE:
+				return new DiscountDto(id, DiscountType.ITEM_TYPE, percentage,
+						Optional.of(randomItemType(random)), Optional.empty(), Optional.empty(), Optional.empty());
+			case ITEM_COST:
+				return new DiscountDto(id, DiscountType.ITEM_COST, percentage,
+						Optional.empty(), Optional.of(BigDecimal.valueOf(random.nextInt(500))), Optional.empty(), Optional.empty());
+			case TIERED_QUANTITY:
+				return new DiscountDto(id, DiscountType.TIERED_QUANTITY, null,
+						Optional.empty(), Optional.empty(), Optional.empty(),
+						Optional.of(String.valueOf(random.nextInt(DISTINCT_ITEMS))), Optional.of(randomTiers(random, 1)));
+			case TIERED_SPEND:
+				return new DiscountDto(id, DiscountType.TIERED_SPEND, null,
+						Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.of(randomTiers(random, 50)));
+			default:
+				return new DiscountDto(id, DiscountType.QUANTITY, percentage,
+						Optional.empty(), Optional.empty(), Optional.of(1 + random.nextInt(10)),
+						Optional.of(String.valueOf(random.nextInt(DISTINCT_ITEMS))));
+		}
+	}
+
+	private static List<DiscountTier> randomTiers(final Random random, final int thresholdStep) {
+		List<DiscountTier> tiers = new ArrayList<>();
+		int tierCount = 1 + random.nextInt(5);
+		long threshold = 0;
+		for (int i = 1; i <= tierCount; i++) {
+			threshold += (long) thresholdStep * (1 + random.nextInt(5));
+			tiers.add(new DiscountTier(BigDecimal.valueOf(threshold), BigDecimal.valueOf(i * 5)));
+		}
+		return tiers;
+	}
+
+	private static Cart randomCart(final Random random) {
+		int size = 1 + random.nextInt(MAX_CART_ITEMS);
+		List<CartItem> cartItems = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			int itemId = random.nextInt(DISTINCT_ITEMS);
+			// item type and cost are derived from the id so that an item always looks the same
+			Item item = new Item(String.valueOf(itemId), ItemType.values()[itemId % ItemType.values().length],
+					BigDecimal.valueOf(1 + itemId % 500));
+			cartItems.add(new CartItem(1 + random.nextInt(10), item));
+		}
+		Cart cart = new Cart();
+		cart.setCartItems(cartItems);
+		return cart;
+	}
+
+	private static ItemType randomItemType(final Random random) {
+		return ItemType.values()[random.nextInt(ItemType.values().length)];
+	}
+
+	private static class Result {
+		// microseconds, auto-resizing, 3 significant digits; from the scheduled start and from the actual send
+		private final Histogram histogram = new Histogram(3);
+		private final Histogram serviceTimeHistogram = new Histogram(3);
+		private long errors;
+		private long rejected;
+		private long elapsedNanos;
+	}
+
+}
@@ -0,0 +1,174 @@
+package com.bsura.demo.replay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.bsura.demo.rest.model.Cart;
+import com.bsura.demo.rest.model.CartItem;
+import com.bsura.demo.rest.model.ItemType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class CartFileReaderTests {
+
+	private static final String CSV_HEADER = "cartId,itemId,itemType,cost,quantity\n";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@TempDir
+	private Path directory;
+
+	/**
+	 * GIVEN
+	 * A CSV file with a header, a blank line and rows of cart c1, then c2, then c1 again
+	 * THEN
+	 * Consecutive rows of the same cartId form one cart, so c1 is read twice
+	 */
+	@Test
+	void testCsvGroupsConsecutiveRows() throws IOException {
+		Path file = write("carts.csv", CSV_HEADER
+				+ "c1,123,CLOTHES,50,1\n"
+				+ "c1, 456 , ELECTRONICS , 300.00 ,2\n"
+				+ "\n"
+				+ "c2,123,CLOTHES,50,5\n"
+				+ "c1,789,TOYS,10,1\n");
+
+		List<Cart> carts = readAll(file);
+
+		assertThat(carts).hasSize(3);
+		assertThat(carts.get(0).getCartItems())
+			.extracting(cartItem -> cartItem.getItem().getId(), cartItem -> cartItem.getItem().getItemType(), CartItem::getQuantity)
+			.containsExactly(tuple("123", ItemType.CLOTHES, 1), tuple("456", ItemType.ELECTRONICS, 2));
+		assertThat(carts.get(0).getCartItems().get(1).getItem().getCost()).isEqualTo(new BigDecimal("300.00"));
+		assertThat(carts.get(1).getCartItems()).extracting(CartItem::getQuantity).containsExactly(5);
+		assertThat(carts.get(2).getCartItems()).extracting(cartItem -> cartItem.getItem().getId()).containsExactly("789");
+	}
+
+	@Test
+	void testCsvWithOnlyHeader() throws IOException {
+		assertThat(readAll(write("carts.csv", CSV_HEADER))).isEmpty();
+		assertThat(readAll(write("empty.csv", ""))).isEmpty();
+	}
+
+	@Test
+	void testCsvReportsLineNumbers() throws IOException {
+		Path file = write("carts.csv", CSV_HEADER
+				+ "c1,123,CLOTHES,50,1\n"
+				+ "\n"
+				+ "c2,123,CLOTHES,50\n");
+
+		try (CartFileReader reader = new CartFileReader(file, objectMapper)) {
+			assertThat(reader.next().getCartItems()).extracting(CartItem::getQuantity).containsExactly(1);
+			assertThatThrownBy(reader::next)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Expected 5 columns on line 4");
+		}
+
+		file = write("carts.csv", CSV_HEADER
+				+ "c1,123,CLOTHES,50,1\n"
+				+ "c1,456,FOOD,300,1\n");
+
+		try (CartFileReader reader = new CartFileReader(file, objectMapper)) {
+			assertThatThrownBy(reader::next)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid cart item on line 3");
+		}
+	}
+
+	/**
+	 * GIVEN
+	 * A CSV file where cart c2 has a valid row followed by one with an unknown itemType and c3 has too few columns
+	 * WHEN
+	 * It is read with a handler for malformed lines
+	 * THEN
+	 * c2 and c3 are skipped whole, each reported once with its line number, and c1 and c4 are read
+	 */
+	@Test
+	void testCsvSkipsMalformedCarts() throws IOException {
+		Path file = write("carts.csv", CSV_HEADER
+				+ "c1,123,CLOTHES,50,1\n"
+				+ "c2,123,CLOTHES,50,1\n"
+				+ "c2,456,FOOD,300,1\n"
+				+ "c2,789,TOYS,10,1\n"
+				+ "c3,123,CLOTHES,50\n"
+				+ "c4,789,TOYS,10,1\n");
+
+		List<String> errors = new ArrayList<>();
+		List<Cart> carts = new ArrayList<>();
+		try (CartFileReader reader = new CartFileReader(file, objectMapper, errors::add)) {
+			reader.forEachRemaining(carts::add);
+		}
+
+		assertThat(carts).extracting(cart -> cart.getCartItems().get(0).getItem().getId()).containsExactly("123", "789");
+		assertThat(errors).containsExactly("Invalid cart item on line 4", "Expected 5 columns on line 6");
+	}
+
+	@Test
+	void testNdjsonSkipsMalformedLines() throws IOException {
+		Path file = write("carts.ndjson",
+				"{\"cartItems\":[\n"
+				+ "{\"cartItems\":[{\"quantity\":1,\"item\":{\"id\":\"456\",\"itemType\":\"ELECTRONICS\",\"cost\":300}}]}\n"
+				+ "not json\n");
+
+		List<String> errors = new ArrayList<>();
+		try (CartFileReader reader = new CartFileReader(file, objectMapper, errors::add)) {
+			assertThat(reader.next().getCartItems()).extracting(cartItem -> cartItem.getItem().getId()).containsExactly("456");
+			assertThat(reader.hasNext()).isFalse();
+		}
+		assertThat(errors).containsExactly("Invalid cart on line 1", "Invalid cart on line 3");
+	}
+
+	@Test
+	void testNdjson() throws IOException {
+		Path file = write("carts.ndjson",
+				"{\"cartItems\":[{\"quantity\":2,\"item\":{\"id\":\"123\",\"itemType\":\"CLOTHES\",\"cost\":50}}]}\n"
+				+ "\n"
+				+ "{\"cartItems\":[{\"quantity\":1,\"item\":{\"id\":\"456\",\"itemType\":\"ELECTRONICS\",\"cost\":300}}]}\n");
+
+		try (CartFileReader reader = new CartFileReader(file, objectMapper)) {
+			assertThat(reader.next().getCartItems()).extracting(CartItem::getQuantity).containsExactly(2);
+			assertThat(reader.next().getCartItems()).extracting(cartItem -> cartItem.getItem().getId()).containsExactly("456");
+			assertThat(reader.hasNext()).isFalse();
+			assertThatThrownBy(reader::next).isInstanceOf(NoSuchElementException.class);
+		}
+	}
+
+	@Test
+	void testNdjsonReportsLineNumbers() throws IOException {
+		Path file = write("carts.ndjson",
+				"{\"cartItems\":[{\"quantity\":2,\"item\":{\"id\":\"123\",\"itemType\":\"CLOTHES\",\"cost\":50}}]}\n"
+				+ "\n"
+				+ "{\"cartItems\":[\n");
+
+		try (CartFileReader reader = new CartFileReader(file, objectMapper)) {
+			reader.next();
+			assertThatThrownBy(reader::next)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid cart on line 3");
+		}
+	}
+
+	private List<Cart> readAll(final Path file) throws IOException {
+		List<Cart> carts = new ArrayList<>();
+		try (CartFileReader reader = new CartFileReader(file, objectMapper)) {
+			reader.forEachRemaining(carts::add);
+		}
+		return carts;
+	}
+
+	private Path write(final String name, final String content) throws IOException {
+		return Files.writeString(directory.resolve(name), content);
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.bsura.demo.replay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bsura.demo.data.model.Discount;
+import com.bsura.demo.rest.model.DiscountDto;
+import com.bsura.demo.rest.model.DiscountType;
+import com.bsura.demo.rest.model.ItemType;
+import com.bsura.demo.service.CartSummary;
+import com.bsura.demo.service.DiscountEvaluator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class CartReplayRunnerTests {
+
+	@TempDir
+	private Path directory;
+
+	/**
+	 * GIVEN
+	 * Discount ABC that gives 10% off all items of type CLOTHES
+	 * WHEN
+	 * A file with two valid carts, one cart with zero quantity, one cart with a malformed row
+	 * and one cart the evaluator fails on is replayed
+	 * THEN
+	 * The valid carts are priced and written, the invalid and malformed ones are rejected
+	 * and the failing one is counted as failed
+	 */
+	@Test
+	void testFailedCartsAreCounted() throws Exception {
+		Path cartsFile = Files.writeString(directory.resolve("carts.csv"),
+				"cartId,itemId,itemType,cost,quantity\n"
+				+ "c1,123,CLOTHES,50,1\n"
+				+ "c2,456,ELECTRONICS,300,1\n"
+				+ "c3,123,CLOTHES,50,0\n"
+				+ "c4,123,CLOTHES,50,1\n"
+				+ "c4,456,ELECTRONICS,abc,1\n"
+				+ "c5,BAD,CLOTHES,50,1\n");
+		Path outputFile = directory.resolve("results.ndjson");
+
+		DiscountEvaluator evaluator = spy(new DiscountEvaluator());
+		doThrow(new IllegalStateException("boom")).when(evaluator).getBestDiscount(
+				argThat((CartSummary cartSummary) -> cartSummary.getCartItems().get(0).getItem().getId().equals("BAD")), anyList());
+
+		ReplaySummary summary = runner(evaluator, cartsFile, outputFile).replay(List.of(discount()));
+
+		assertThat(summary.getEvaluatedCarts()).isEqualTo(2);
+		assertThat(summary.getRejectedCarts()).isEqualTo(2);
+		assertThat(summary.getFailedCarts()).isEqualTo(1);
+		assertThat(summary.getCartsPerDiscount()).containsOnlyKeys("ABC", DiscountEvaluator.NO_DISCOUNT_ID);
+		assertThat(summary.getTotalSavings()).isEqualByComparingTo("5");
+		assertThat(Files.readAllLines(outputFile)).hasSize(2);
+	}
+
+	/**
+	 * GIVEN
+	 * Discount ABC that gives 10% off all items of type CLOTHES
+	 * WHEN
+	 * An NDJSON file with an unparseable line between two valid carts is replayed
+	 * THEN
+	 * The unparseable line is rejected and both valid carts are still priced and written
+	 */
+	@Test
+	void testMalformedLinesAreSkipped() throws Exception {
+		Path cartsFile = Files.writeString(directory.resolve("carts.ndjson"),
+				"{\"cartItems\":[{\"quantity\":2,\"item\":{\"id\":\"123\",\"itemType\":\"CLOTHES\",\"cost\":50}}]}\n"
+				+ "{\"cartItems\":[\n"
+				+ "{\"cartItems\":[{\"quantity\":1,\"item\":{\"id\":\"456\",\"itemType\":\"ELECTRONICS\",\"cost\":300}}]}\n");
+		Path outputFile = directory.resolve("results.ndjson");
+
+		ReplaySummary summary = runner(new DiscountEvaluator(), cartsFile, outputFile).replay(List.of(discount()));
+
+		assertThat(summary.getEvaluatedCarts()).isEqualTo(2);
+		assertThat(summary.getRejectedCarts()).isEqualTo(1);
+		assertThat(summary.getFailedCarts()).isZero();
+		assertThat(summary.getTotalSavings()).isEqualByComparingTo("10");
+		assertThat(Files.readAllLines(outputFile)).hasSize(2);
+	}
+
+	private CartReplayRunner runner(final DiscountEvaluator evaluator, final Path cartsFile, final Path outputFile) {
+		CartReplayRunner runner = new CartReplayRunner();
+		ReflectionTestUtils.setField(runner, "evaluator", evaluator);
+		ReflectionTestUtils.setField(runner, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(runner, "cartsFile", cartsFile);
+		ReflectionTestUtils.setField(runner, "outputFile", outputFile);
+		ReflectionTestUtils.setField(runner, "threads", 2);
+		ReflectionTestUtils.setField(runner, "queueCapacity", 1);
+		return runner;
+	}
+
+	private static Discount discount() {
+		return new Discount(new DiscountDto("ABC", DiscountType.ITEM_TYPE, BigDecimal.TEN,
+				Optional.of(ItemType.CLOTHES), Optional.empty(), Optional.empty(), Optional.empty()));
+	}
+
+}
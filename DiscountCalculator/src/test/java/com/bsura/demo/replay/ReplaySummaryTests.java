@@ -0,0 +1,61 @@
+package com.bsura.demo.replay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class ReplaySummaryTests {
+
+	@Test
+	void testAggregatesPerDiscount() {
+		ReplaySummary summary = new ReplaySummary();
+
+		summary.record("ABC", new BigDecimal("5.0"));
+		summary.record("CDE", BigDecimal.valueOf(45));
+		summary.record("ABC", new BigDecimal("2.50"));
+		summary.record("NoDiscount", BigDecimal.ZERO);
+		summary.recordRejected();
+		summary.recordFailed();
+		summary.recordFailed();
+
+		assertThat(summary.getEvaluatedCarts()).isEqualTo(4);
+		assertThat(summary.getRejectedCarts()).isEqualTo(1);
+		assertThat(summary.getFailedCarts()).isEqualTo(2);
+		assertThat(summary.getCartsPerDiscount()).containsExactly(entry("ABC", 2L), entry("CDE", 1L), entry("NoDiscount", 1L));
+		assertThat(summary.getSavingsPerDiscount().get("ABC")).isEqualByComparingTo("7.5");
+		assertThat(summary.getSavingsPerDiscount().get("CDE")).isEqualByComparingTo("45");
+		assertThat(summary.getTotalSavings()).isEqualByComparingTo("52.5");
+	}
+
+	@Test
+	void testConcurrentUpdates() throws Exception {
+		ReplaySummary summary = new ReplaySummary();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		List<Future<?>> futures = new ArrayList<>();
+		for (int thread = 0; thread < 8; thread++) {
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 1000; i++) {
+					summary.record(i % 2 == 0 ? "ABC" : "CDE", BigDecimal.ONE);
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertThat(summary.getEvaluatedCarts()).isEqualTo(8000);
+		assertThat(summary.getCartsPerDiscount()).containsExactly(entry("ABC", 4000L), entry("CDE", 4000L));
+		assertThat(summary.getTotalSavings()).isEqualByComparingTo("8000");
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.bsura.demo.rest.admission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdmissionControlInterceptorTests {
+
+	private static final String CLIENT_KEY_HEADER = "X-Client-Id";
+
+	private SimpleMeterRegistry meterRegistry;
+	private AdmissionControlInterceptor interceptor;
+
+	@BeforeEach
+	void setUp() {
+		AdmissionProperties.Endpoint endpoint = new AdmissionProperties.Endpoint();
+		endpoint.setPath("/discounts/");
+		endpoint.setMethod("POST");
+		endpoint.setMaxConcurrency(3);
+		endpoint.setMaxClientConcurrency(2);
+		endpoint.setRetryAfter(Duration.ofSeconds(2));
+
+		meterRegistry = new SimpleMeterRegistry();
+		interceptor = new AdmissionControlInterceptor("best-discount", endpoint, CLIENT_KEY_HEADER, meterRegistry);
+	}
+
+	@Test
+	void testEndpointLimit() {
+		for (int i = 0; i < 3; i++) {
+			assertThat(interceptor.preHandle(request(null), new MockHttpServletResponse(), null)).isTrue();
+		}
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertThat(interceptor.preHandle(request(null), response, null)).isFalse();
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+		assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+
+		assertThat(count("admitted")).isEqualTo(3);
+		assertThat(count("endpoint_limited")).isEqualTo(1);
+		assertThat(gauge("admission.inflight")).isEqualTo(3);
+		assertThat(gauge("admission.limit")).isEqualTo(3);
+	}
+
+	@Test
+	void testClientLimit() {
+		for (int i = 0; i < 2; i++) {
+			assertThat(interceptor.preHandle(request("client1"), new MockHttpServletResponse(), null)).isTrue();
+		}
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertThat(interceptor.preHandle(request("client1"), response, null)).isFalse();
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+		assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+
+		// other clients are still admitted up to the endpoint limit
+		assertThat(interceptor.preHandle(request("client2"), new MockHttpServletResponse(), null)).isTrue();
+
+		assertThat(count("admitted")).isEqualTo(3);
+		assertThat(count("client_limited")).isEqualTo(1);
+		assertThat(gauge("admission.clients")).isEqualTo(2);
+	}
+
+	@Test
+	void testReleaseAfterCompletion() {
+		MockHttpServletRequest[] requests = new MockHttpServletRequest[3];
+		for (int i = 0; i < requests.length; i++) {
+			requests[i] = request("client" + i);
+			assertThat(interceptor.preHandle(requests[i], new MockHttpServletResponse(), null)).isTrue();
+		}
+		assertThat(interceptor.preHandle(request("client3"), new MockHttpServletResponse(), null)).isFalse();
+
+		for (MockHttpServletRequest request : requests) {
+			interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+		}
+		// a second completion of the same request must not release twice
+		interceptor.afterCompletion(requests[0], new MockHttpServletResponse(), null, null);
+
+		assertThat(gauge("admission.inflight")).isEqualTo(0);
+		assertThat(gauge("admission.clients")).isEqualTo(0);
+		assertThat(interceptor.preHandle(request("client3"), new MockHttpServletResponse(), null)).isTrue();
+	}
+
+	@Test
+	void testOtherMethodsAreNotLimited() {
+		for (int i = 0; i < 5; i++) {
+			MockHttpServletRequest request = request(null);
+			request.setMethod("GET");
+			assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), null)).isTrue();
+		}
+		assertThat(count("admitted")).isEqualTo(0);
+		assertThat(gauge("admission.inflight")).isEqualTo(0);
+	}
+
+	private static MockHttpServletRequest request(final String clientKey) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/discounts/");
+		if (clientKey != null) {
+			request.addHeader(CLIENT_KEY_HEADER, clientKey);
+		}
+		return request;
+	}
+
+	private double count(final String outcome) {
+		return meterRegistry.get("admission.requests").tag("endpoint", "best-discount").tag("outcome", outcome).counter().count();
+	}
+
+	private double gauge(final String name) {
+		return meterRegistry.get(name).tag("endpoint", "best-discount").gauge().value();
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.bsura.demo.rest.admission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTests {
+
+	private static final long SLOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Test
+	void testFixedLimit() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(endpoint(false));
+
+		for (int i = 0; i < 200; i++) {
+			assertThat(limiter.tryAcquire()).isTrue();
+		}
+		assertThat(limiter.tryAcquire()).isFalse();
+
+		long start = System.nanoTime();
+		limiter.release(start, start + SLOW_NANOS, false);
+		assertThat(limiter.getLimit()).isEqualTo(200);
+		assertThat(limiter.getInFlight()).isEqualTo(199);
+		assertThat(limiter.tryAcquire()).isTrue();
+	}
+
+	/**
+	 * GIVEN
+	 * An adaptive limiter with 200 requests in flight
+	 * WHEN
+	 * All of them complete slowly
+	 * THEN
+	 * The limit backs off once, and again only for a slow request admitted after that
+	 */
+	@Test
+	void testAdaptiveLimitBacksOffOncePerRoundTrip() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(endpoint(true));
+
+		long start = System.nanoTime();
+		for (int i = 0; i < 200; i++) {
+			assertThat(limiter.tryAcquire()).isTrue();
+		}
+		for (int i = 0; i < 200; i++) {
+			limiter.release(start, start + SLOW_NANOS + i, i % 2 == 0);
+		}
+		assertThat(limiter.getLimit()).isEqualTo(180);
+		assertThat(limiter.getInFlight()).isEqualTo(0);
+
+		long laterStart = start + SLOW_NANOS + 200;
+		assertThat(limiter.tryAcquire()).isTrue();
+		limiter.release(laterStart, laterStart + SLOW_NANOS, true);
+		assertThat(limiter.getLimit()).isEqualTo(162);
+	}
+
+	/**
+	 * GIVEN
+	 * An adaptive limiter that backed off to 180 with 100 requests in flight
+	 * WHEN
+	 * Ten fast responses complete per round trip
+	 * THEN
+	 * The limit grows by one per round trip, not per response, and stops at the maximum
+	 */
+	@Test
+	void testAdaptiveLimitGrowsOncePerRoundTripUpToMax() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(endpoint(true));
+
+		long start = System.nanoTime();
+		limiter.tryAcquire();
+		limiter.release(start, start + SLOW_NANOS, true);
+		assertThat(limiter.getLimit()).isEqualTo(180);
+
+		// fast responses only grow the limit while at least half of it is in use
+		limiter.tryAcquire();
+		limiter.release(start + SLOW_NANOS, start + SLOW_NANOS + FAST_NANOS, true);
+		assertThat(limiter.getLimit()).isEqualTo(180);
+
+		for (int i = 0; i < 100; i++) {
+			limiter.tryAcquire();
+		}
+
+		// requests admitted before the backoff do not undo it
+		for (int i = 0; i < 30; i++) {
+			limiter.tryAcquire();
+			limiter.release(start, start + FAST_NANOS, true);
+		}
+		assertThat(limiter.getLimit()).isEqualTo(180);
+
+		long roundStart = start + SLOW_NANOS + FAST_NANOS;
+		for (int round = 1; round <= 30; round++) {
+			for (int i = 0; i < 10; i++) {
+				limiter.tryAcquire();
+				limiter.release(roundStart, roundStart + FAST_NANOS + i, true);
+			}
+			roundStart += FAST_NANOS + 10;
+
+			if (round == 10) {
+				assertThat(limiter.getLimit()).isEqualTo(190);
+			}
+		}
+		assertThat(limiter.getLimit()).isEqualTo(200);
+	}
+
+	@Test
+	void testAdaptiveLimitStopsAtMin() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(endpoint(true));
+
+		long start = System.nanoTime();
+		for (int i = 0; i < 100; i++) {
+			limiter.tryAcquire();
+			limiter.release(start, start + SLOW_NANOS, false);
+			start += SLOW_NANOS;
+		}
+		assertThat(limiter.getLimit()).isEqualTo(16);
+	}
+
+	private static AdmissionProperties.Endpoint endpoint(final boolean adaptive) {
+		AdmissionProperties.Endpoint endpoint = new AdmissionProperties.Endpoint();
+		endpoint.setMaxConcurrency(200);
+		endpoint.setMinConcurrency(16);
+		endpoint.setAdaptive(adaptive);
+		endpoint.setLatencyThreshold(Duration.ofMillis(250));
+		return endpoint;
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.bsura.demo.rest.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+class SimulationRequestTests {
+
+	@Test
+	void testValidRequest() {
+		assertThat(request(discount("TV20", DiscountType.ITEM_TYPE, Optional.empty())).isValid()).isTrue();
+	}
+
+	@Test
+	void testAdditionWithoutDiscountType() {
+		assertThat(request(discount("NOTYPE", null, Optional.empty())).isValid()).isFalse();
+	}
+
+	@Test
+	void testAdditionWithMissingTier() {
+		DiscountDto discountDto = discount("TS", DiscountType.TIERED_SPEND,
+				Optional.of(Arrays.asList(new DiscountTier(BigDecimal.valueOf(100), BigDecimal.valueOf(5)), null)));
+
+		assertThat(request(discountDto).isValid()).isFalse();
+	}
+
+	@Test
+	void testMissingAdditionOrCart() {
+		assertThat(request((DiscountDto) null).isValid()).isFalse();
+
+		SimulationRequest request = new SimulationRequest(Optional.of(Arrays.asList(cart(), null)), Optional.empty(),
+				List.of(), List.of());
+		assertThat(request.isValid()).isFalse();
+	}
+
+	private static SimulationRequest request(final DiscountDto addition) {
+		return new SimulationRequest(Optional.of(List.of(cart())), Optional.empty(), Arrays.asList(addition), List.of());
+	}
+
+	private static DiscountDto discount(final String id, final DiscountType discountType, final Optional<List<DiscountTier>> tiers) {
+		return new DiscountDto(id, discountType, BigDecimal.TEN, Optional.of(ItemType.ELECTRONICS),
+				Optional.empty(), Optional.empty(), Optional.empty(), tiers);
+	}
+
+	private static Cart cart() {
+		Cart cart = new Cart();
+		cart.setCartItems(List.of(new CartItem(1, new Item("456", ItemType.ELECTRONICS, BigDecimal.valueOf(300)))));
+		return cart;
+	}
+
+}
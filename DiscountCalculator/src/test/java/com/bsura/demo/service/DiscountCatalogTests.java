@@ -0,0 +1,249 @@
+package com.bsura.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bsura.demo.data.model.CatalogVersion;
+import com.bsura.demo.data.model.Discount;
+import com.bsura.demo.data.repositories.DiscountRepository;
+import com.bsura.demo.exception.CatalogVersionNotAvailableException;
+
+class DiscountCatalogTests {
+
+	// stands in for Mongo: null means the version document does not exist
+	private CatalogVersion storedVersion;
+	private final List<Discount> storedDiscounts = new ArrayList<>();
+	// runs once inside the next findAll, to race a change with a load
+	private Runnable duringLoad;
+
+	private DiscountRepository repository;
+	private MongoTemplate mongoTemplate;
+	private DiscountCatalog catalog;
+
+	@BeforeEach
+	void setUp() {
+		repository = mock(DiscountRepository.class);
+		mongoTemplate = mock(MongoTemplate.class);
+
+		when(repository.findAll()).thenAnswer(invocation -> {
+			List<Discount> discounts = new ArrayList<>(storedDiscounts);
+			if (duringLoad != null) {
+				Runnable change = duringLoad;
+				duringLoad = null;
+				change.run();
+				// the load sees the change but not the version bump that follows it
+				discounts = new ArrayList<>(storedDiscounts);
+			}
+			return discounts;
+		});
+		when(mongoTemplate.findById(CatalogVersion.DISCOUNTS, CatalogVersion.class)).thenAnswer(invocation -> copy(storedVersion));
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(CatalogVersion.class)))
+				.thenAnswer(invocation -> {
+					Document inc = (Document) invocation.getArgument(1, Update.class).getUpdateObject().get("$inc");
+					if (storedVersion == null) {
+						storedVersion = new CatalogVersion(CatalogVersion.DISCOUNTS, 0, 0);
+					}
+					storedVersion.setVersion(storedVersion.getVersion() + ((Number) inc.getOrDefault("version", 0)).longValue());
+					storedVersion.setPending(storedVersion.getPending() + ((Number) inc.getOrDefault("pending", 0)).longValue());
+					return copy(storedVersion);
+				});
+
+		catalog = new DiscountCatalog();
+		ReflectionTestUtils.setField(catalog, "repository", repository);
+		ReflectionTestUtils.setField(catalog, "mongoTemplate", mongoTemplate);
+		// long enough that only version changes trigger a refresh
+		ReflectionTestUtils.setField(catalog, "refreshInterval", Duration.ofHours(1));
+		ReflectionTestUtils.setField(catalog, "versionCheckInterval", Duration.ofHours(1));
+	}
+
+	/**
+	 * GIVEN
+	 * A node serving catalog version 1
+	 * WHEN
+	 * Callers keep asking for version 1000, which is not published
+	 * THEN
+	 * Only the first one checks Mongo, the others get 412 straight away, 
+	 * and the node's own next change is still visible immediately
+	 */
+	@Test
+	void testUnpublishedVersionIsCheckedOncePerInterval() {
+		add("ABC");
+		catalog.getSnapshot(0);
+
+		assertThatThrownBy(() -> catalog.getSnapshot(1000)).isInstanceOf(CatalogVersionNotAvailableException.class);
+
+		clearInvocations(mongoTemplate, repository);
+		for (int i = 0; i < 100; i++) {
+			assertThatThrownBy(() -> catalog.getSnapshot(1000)).isInstanceOf(CatalogVersionNotAvailableException.class);
+		}
+		verify(mongoTemplate, never()).findById(CatalogVersion.DISCOUNTS, CatalogVersion.class);
+
+		add("CDE");
+		CatalogSnapshot snapshot = catalog.getSnapshot(2);
+		assertThat(ids(snapshot)).containsExactly("ABC", "CDE");
+	}
+
+	/**
+	 * GIVEN
+	 * A node serving catalog version 1 with ABC
+	 * WHEN
+	 * CDE has been written but its change has not ended when the node re-checks the version
+	 * THEN
+	 * The node keeps serving version 1 with ABC only, and serves version 2 with both once the change ends
+	 */
+	@Test
+	void testChangeInProgressIsNotLabelled() {
+		add("ABC");
+		assertThat(ids(catalog.getSnapshot(0))).containsExactly("ABC");
+
+		catalog.beginChange();
+		storedDiscounts.add(discount("CDE"));
+		expireRefreshInterval();
+
+		CatalogSnapshot snapshot = catalog.getSnapshot(0);
+		assertThat(snapshot.getVersion()).isEqualTo(1);
+		assertThat(ids(snapshot)).containsExactly("ABC");
+
+		catalog.endChange(true);
+		snapshot = catalog.getSnapshot(0);
+		assertThat(snapshot.getVersion()).isEqualTo(2);
+		assertThat(ids(snapshot)).containsExactly("ABC", "CDE");
+	}
+
+	/**
+	 * GIVEN
+	 * A node serving catalog version 1 with ABC
+	 * WHEN
+	 * CDE is written while the node loads the discounts, and the change ends only afterwards
+	 * THEN
+	 * The discounts containing CDE are never labelled version 1
+	 */
+	@Test
+	void testChangeRacingWithLoadIsNotLabelled() {
+		add("ABC");
+		catalog.getSnapshot(0);
+
+		duringLoad = () -> {
+			catalog.beginChange();
+			storedDiscounts.add(discount("CDE"));
+		};
+		ReflectionTestUtils.setField(catalog, "snapshot", null);
+
+		assertThatThrownBy(() -> catalog.getSnapshot(0)).isInstanceOf(CatalogVersionNotAvailableException.class);
+
+		catalog.endChange(true);
+		CatalogSnapshot snapshot = catalog.getSnapshot(0);
+		assertThat(snapshot.getVersion()).isEqualTo(2);
+		assertThat(ids(snapshot)).containsExactly("ABC", "CDE");
+	}
+
+	/**
+	 * GIVEN
+	 * A node serving catalog version 3 with ABC, CDE and TQ
+	 * WHEN
+	 * The database is dropped and ABC, CDE and FGH are added through the node, bringing the version back to 3
+	 * THEN
+	 * The node serves ABC, CDE and FGH rather than its cached version 3
+	 */
+	@Test
+	void testVersionResetByOwnChanges() {
+		add("ABC");
+		add("CDE");
+		add("TQ");
+		assertThat(ids(catalog.getSnapshot(0))).containsExactly("ABC", "CDE", "TQ");
+
+		drop();
+		add("ABC");
+		add("CDE");
+		add("FGH");
+
+		CatalogSnapshot snapshot = catalog.getSnapshot(0);
+		assertThat(snapshot.getVersion()).isEqualTo(3);
+		assertThat(ids(snapshot)).containsExactly("ABC", "CDE", "FGH");
+	}
+
+	/**
+	 * GIVEN
+	 * A node that has published thousands of versions
+	 * WHEN
+	 * The database is dropped and discounts are inserted without a change
+	 * THEN
+	 * The node reloads once the refresh interval passes and afterwards serves from its cache without checking Mongo
+	 */
+	@Test
+	void testVersionResetWithoutChanges() {
+		for (int i = 0; i < 5000; i++) {
+			catalog.beginChange();
+			catalog.endChange(true);
+		}
+		assertThat(catalog.getSnapshot(0).getVersion()).isEqualTo(5000);
+
+		drop();
+		storedDiscounts.add(discount("LOAD"));
+		expireRefreshInterval();
+
+		CatalogSnapshot snapshot = catalog.getSnapshot(0);
+		assertThat(snapshot.getVersion()).isEqualTo(0);
+		assertThat(ids(snapshot)).containsExactly("LOAD");
+
+		clearInvocations(mongoTemplate, repository);
+		for (int i = 0; i < 100; i++) {
+			catalog.getSnapshot(0);
+		}
+		verify(mongoTemplate, never()).findById(CatalogVersion.DISCOUNTS, CatalogVersion.class);
+		verify(repository, never()).findAll();
+	}
+
+	private void add(final String id) {
+		catalog.beginChange();
+		storedDiscounts.add(discount(id));
+		catalog.endChange(true);
+	}
+
+	private void drop() {
+		storedDiscounts.clear();
+		storedVersion = null;
+	}
+
+	private void expireRefreshInterval() {
+		CatalogSnapshot current = (CatalogSnapshot) ReflectionTestUtils.getField(catalog, "snapshot");
+		ReflectionTestUtils.setField(catalog, "snapshot",
+				new CatalogSnapshot(current.getVersion(), current.getDiscounts(), current.getCheckedAtNanos() - Duration.ofHours(2).toNanos()));
+	}
+
+	private static CatalogVersion copy(final CatalogVersion catalogVersion) {
+		return catalogVersion == null ? null
+				: new CatalogVersion(catalogVersion.getId(), catalogVersion.getVersion(), catalogVersion.getPending());
+	}
+
+	private static Discount discount(final String id) {
+		Discount discount = new Discount();
+		discount.setId(id);
+		return discount;
+	}
+
+	private static List<String> ids(final CatalogSnapshot snapshot) {
+		return snapshot.getDiscounts().stream().map(Discount::getId).toList();
+	}
+
+}
@@ -0,0 +1,202 @@
+package com.bsura.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bsura.demo.data.model.AppliedDiscount;
+import com.bsura.demo.data.model.Discount;
+import com.bsura.demo.data.repositories.DiscountRepository;
+import com.bsura.demo.rest.model.Cart;
+import com.bsura.demo.rest.model.CartItem;
+import com.bsura.demo.rest.model.DiscountDto;
+import com.bsura.demo.rest.model.DiscountType;
+import com.bsura.demo.rest.model.Item;
+import com.bsura.demo.rest.model.ItemType;
+import com.bsura.demo.trace.DecisionTraceBuffer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DiscountServiceTests {
+
+	// ABC gives 10% off all items of type CLOTHES
+	private static final List<Discount> CATALOG = List.of(new Discount(new DiscountDto("ABC", DiscountType.ITEM_TYPE, BigDecimal.TEN,
+			Optional.of(ItemType.CLOTHES), Optional.empty(), Optional.empty(), Optional.empty())));
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private SimpleMeterRegistry meterRegistry;
+	private DiscountEvaluator evaluator;
+	private DiscountCatalog catalog;
+	private final DiscountRepository repository = mock(DiscountRepository.class);
+	private DiscountService service;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		catalog = mock(DiscountCatalog.class);
+		when(catalog.getSnapshot(anyLong())).thenReturn(new CatalogSnapshot(1, CATALOG, System.nanoTime()));
+
+		// every evaluation blocks until released, so that concurrent requests overlap
+		evaluator = spy(new DiscountEvaluator());
+		doAnswer(invocation -> {
+			assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+			return invocation.callRealMethod();
+		}).when(evaluator).getBestDiscount(any(CartSummary.class), anyList(), isNull());
+
+		service = new DiscountService(meterRegistry);
+		ReflectionTestUtils.setField(service, "evaluator", evaluator);
+		ReflectionTestUtils.setField(service, "catalog", catalog);
+		ReflectionTestUtils.setField(service, "traceBuffer", mock(DecisionTraceBuffer.class));
+		ReflectionTestUtils.setField(service, "repository", repository);
+	}
+
+	@Test
+	void testRemoveUnknownDiscountKeepsVersion() {
+		when(repository.removeById("XYZ")).thenReturn(0L);
+		when(repository.removeById("ABC")).thenReturn(1L);
+
+		service.removeDiscount("XYZ");
+		verify(catalog).endChange(false);
+
+		service.removeDiscount("ABC");
+		verify(catalog).endChange(true);
+		verify(catalog, times(2)).beginChange();
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * GIVEN
+	 * Eight concurrent requests for the same $50 shirt, with the items listed in different order
+	 * THEN
+	 * The cart is evaluated once, seven requests are counted as coalesced and all get ABC at $45
+	 */
+	@Test
+	void testIdenticalCartsShareOneEvaluation() throws Exception {
+		List<Future<AppliedDiscount>> futures = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Cart cart = i % 2 == 0
+					? cart(item("123", "50"), item("456", "300"))
+					: cart(item("456", "300"), item("123", "50"));
+			futures.add(executor.submit(() -> service.getBestDiscount(cart, false, 0)));
+		}
+		awaitCoalesced(7);
+		release.countDown();
+
+		for (Future<AppliedDiscount> future : futures) {
+			AppliedDiscount appliedDiscount = future.get(5, TimeUnit.SECONDS);
+			assertThat(appliedDiscount.getDiscountId()).isEqualTo("ABC");
+			assertThat(appliedDiscount.getTotalCostAfterDiscount()).isEqualByComparingTo("345");
+			assertThat(appliedDiscount.getCatalogVersion()).isEqualTo(1);
+		}
+		verify(evaluator, times(1)).getBestDiscount(any(CartSummary.class), anyList(), isNull());
+	}
+
+	/**
+	 * GIVEN
+	 * Two concurrent requests for the same cart, priced with catalog versions 1 and 2
+	 * THEN
+	 * Both are evaluated, each with its own catalog version
+	 */
+	@Test
+	void testCatalogChangeSeparatesKeys() throws Exception {
+		when(catalog.getSnapshot(anyLong())).thenReturn(
+				new CatalogSnapshot(1, CATALOG, System.nanoTime()),
+				new CatalogSnapshot(2, CATALOG, System.nanoTime()));
+
+		Future<AppliedDiscount> first = executor.submit(() -> service.getBestDiscount(cart(item("123", "50")), false, 0));
+		awaitEvaluations(1);
+		Future<AppliedDiscount> second = executor.submit(() -> service.getBestDiscount(cart(item("123", "50")), false, 0));
+		awaitEvaluations(2);
+		release.countDown();
+
+		assertThat(first.get(5, TimeUnit.SECONDS).getCatalogVersion()).isEqualTo(1);
+		assertThat(second.get(5, TimeUnit.SECONDS).getCatalogVersion()).isEqualTo(2);
+		assertThat(coalesced()).isEqualTo(0);
+	}
+
+	/**
+	 * GIVEN
+	 * Two concurrent requests for a shirt costing 50.0 and 50.00
+	 * THEN
+	 * They are not coalesced and each total keeps the scale of its own cart
+	 */
+	@Test
+	void testCostScaleSeparatesKeys() throws Exception {
+		Future<AppliedDiscount> first = executor.submit(() -> service.getBestDiscount(cart(item("123", "50.0")), false, 0));
+		awaitEvaluations(1);
+		Future<AppliedDiscount> second = executor.submit(() -> service.getBestDiscount(cart(item("123", "50.00")), false, 0));
+		awaitEvaluations(2);
+		release.countDown();
+
+		assertThat(first.get(5, TimeUnit.SECONDS).getTotalCostAfterDiscount()).isEqualTo(new BigDecimal("50.0").multiply(new BigDecimal("0.9")));
+		assertThat(second.get(5, TimeUnit.SECONDS).getTotalCostAfterDiscount()).isEqualTo(new BigDecimal("50.00").multiply(new BigDecimal("0.9")));
+		assertThat(coalesced()).isEqualTo(0);
+	}
+
+	private void awaitCoalesced(final int expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (coalesced() < expected && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertThat(coalesced()).isEqualTo(expected);
+	}
+
+	private void awaitEvaluations(final int expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (evaluations() < expected && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertThat(evaluations()).isEqualTo(expected);
+	}
+
+	private long evaluations() {
+		return mockingDetails(evaluator).getInvocations().stream()
+				.filter(invocation -> invocation.getMethod().getName().equals("getBestDiscount"))
+				.count();
+	}
+
+	private double coalesced() {
+		return meterRegistry.get("pricing.coalesced").counter().count();
+	}
+
+	private static CartItem item(final String id, final String cost) {
+		return new CartItem(1, new Item(id, id.equals("123") ? ItemType.CLOTHES : ItemType.ELECTRONICS, new BigDecimal(cost)));
+	}
+
+	private static Cart cart(final CartItem... cartItems) {
+		Cart cart = new Cart();
+		cart.setCartItems(List.of(cartItems));
+		return cart;
+	}
+
+}
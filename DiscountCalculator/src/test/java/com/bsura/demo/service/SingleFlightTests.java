@@ -0,0 +1,124 @@
+package com.bsura.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTests {
+
+	private final AtomicInteger coalesced = new AtomicInteger();
+	private final SingleFlight<String, String> singleFlight = new SingleFlight<>(coalesced::incrementAndGet);
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void testConcurrentCallersShareOneComputation() throws Exception {
+		AtomicInteger computations = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<String> leader = executor.submit(() -> singleFlight.execute("cart", () -> {
+			started.countDown();
+			await(release);
+			return "value" + computations.incrementAndGet();
+		}));
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		List<Future<String>> followers = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			followers.add(executor.submit(() -> singleFlight.execute("cart", () -> "value" + computations.incrementAndGet())));
+		}
+		awaitCoalesced(10);
+		release.countDown();
+
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("value1");
+		for (Future<String> follower : followers) {
+			assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("value1");
+		}
+		assertThat(computations.get()).isEqualTo(1);
+	}
+
+	@Test
+	void testDifferentKeysComputeSeparately() throws Exception {
+		CountDownLatch bothStarted = new CountDownLatch(2);
+
+		Future<String> first = executor.submit(() -> singleFlight.execute("1/cart", () -> {
+			bothStarted.countDown();
+			await(bothStarted);
+			return "first";
+		}));
+		Future<String> second = executor.submit(() -> singleFlight.execute("2/cart", () -> {
+			bothStarted.countDown();
+			await(bothStarted);
+			return "second";
+		}));
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+		assertThat(coalesced.get()).isEqualTo(0);
+	}
+
+	@Test
+	void testFailureIsSharedAndNotKept() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<String> leader = executor.submit(() -> singleFlight.execute("cart", () -> {
+			started.countDown();
+			await(release);
+			throw new IllegalStateException("boom");
+		}));
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		Future<String> follower = executor.submit(() -> singleFlight.execute("cart", () -> "unused"));
+		awaitCoalesced(1);
+		release.countDown();
+
+		assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+
+		assertThat(singleFlight.execute("cart", () -> "recovered")).isEqualTo("recovered");
+	}
+
+	@Test
+	void testCompletedValuesAreNotCached() {
+		AtomicInteger computations = new AtomicInteger();
+
+		singleFlight.execute("cart", () -> "value" + computations.incrementAndGet());
+		singleFlight.execute("cart", () -> "value" + computations.incrementAndGet());
+
+		assertThat(computations.get()).isEqualTo(2);
+		assertThat(coalesced.get()).isEqualTo(0);
+	}
+
+	private void awaitCoalesced(final int expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (coalesced.get() < expected && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertThat(coalesced.get()).isEqualTo(expected);
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}